@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.view.animation.Interpolator;
+
+/**
+ * Float animator running over a fixed duration.
+ * <p/>
+ * Unlike {@link com.nineoldandroids.animation.ObjectAnimator} it is driven by
+ * the shared {@link MaterialMenuFrameClock} and allocates nothing per frame.
+ */
+final class MaterialMenuAnimator extends MaterialMenuFrameAnimator {
+
+	private long duration = 300;
+	private Interpolator interpolator;
+
+	MaterialMenuAnimator(Target target) {
+		super(target);
+	}
+
+	@Override
+	public MaterialMenuAnimator setDuration(long duration) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("Animators cannot have negative duration: " + duration);
+		}
+		this.duration = duration;
+		return this;
+	}
+
+	@Override
+	public long getDuration() {
+		return duration;
+	}
+
+	@Override
+	public void setInterpolator(Interpolator interpolator) {
+		this.interpolator = interpolator;
+	}
+
+	@Override
+	boolean onFrame(long playTime) {
+		final float fraction = duration > 0 ? Math.min(1f, (float) playTime
+				/ duration) : 1f;
+		final float interpolated = interpolator != null ? interpolator
+				.getInterpolation(fraction) : fraction;
+		update(startValue + (endValue - startValue) * interpolated);
+		return fraction >= 1f;
+	}
+}
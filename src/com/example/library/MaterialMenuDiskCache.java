@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persists rasterized frames of a {@link MaterialMenuFrameCache} across
+ * process restarts.
+ * <p/>
+ * Frames of one drawable configuration (density, scale, stroke and color)
+ * are written into a versioned binary file under the application cache
+ * directory and loaded back through a {@link MappedByteBuffer}. Files written
+ * for a different {@link MaterialMenuGeometry#VERSION} are deleted on load.
+ * <p/>
+ * Both {@link #load(MaterialMenuDrawable)} and
+ * {@link #save(MaterialMenuDrawable)} perform I/O and should be called off
+ * the main thread.
+ */
+public final class MaterialMenuDiskCache {
+
+	private static final String TAG = "MaterialMenuDiskCache";
+	private static final String DIRECTORY = "materialmenu";
+
+	private static final int MAGIC = 0x4d4d4643; // MMFC
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * magic, format version, geometry version, width, height, steps, frame
+	 * bytes and frame count
+	 */
+	private static final int HEADER_SIZE = 8 * 4;
+
+	private final File directory;
+
+	public MaterialMenuDiskCache(Context context) {
+		this.directory = new File(context.getCacheDir(), DIRECTORY);
+	}
+
+	/**
+	 * Fill the frame cache of given drawable with frames stored for its
+	 * configuration
+	 *
+	 * @return true if frames were loaded
+	 */
+	public boolean load(MaterialMenuDrawable drawable) {
+		final MaterialMenuFrameCache frameCache = drawable.getFrameCache();
+		if (frameCache == null) {
+			return false;
+		}
+
+		final File file = fileOf(drawable);
+		if (!file.exists()) {
+			return false;
+		}
+
+		RandomAccessFile input = null;
+		try {
+			input = new RandomAccessFile(file, "r");
+			final FileChannel channel = input.getChannel();
+			final MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			final MaterialMenuGeometry geometry = drawable.getGeometry();
+			if (buffer.remaining() < HEADER_SIZE
+					|| buffer.getInt() != MAGIC
+					|| buffer.getInt() != FORMAT_VERSION
+					|| buffer.getInt() != MaterialMenuGeometry.VERSION
+					|| buffer.getInt() != geometry.getWidth()
+					|| buffer.getInt() != geometry.getHeight()
+					|| buffer.getInt() != frameCache.getSteps()) {
+				// stale or foreign file
+				input.close();
+				input = null;
+				file.delete();
+				return false;
+			}
+
+			final int frameBytes = buffer.getInt();
+			final int frameCount = buffer.getInt();
+			if (frameBytes != geometry.getWidth() * geometry.getHeight() * 4
+					|| frameCount < 0
+					|| buffer.remaining() < (long) frameCount * (8 + frameBytes)) {
+				// truncated or corrupt file
+				input.close();
+				input = null;
+				file.delete();
+				return false;
+			}
+
+			for (int i = 0; i < frameCount; i++) {
+				final long key = buffer.getLong();
+				final ByteBuffer pixels = buffer.duplicate();
+				pixels.limit(pixels.position() + frameBytes);
+				buffer.position(buffer.position() + frameBytes);
+
+				final Bitmap frame = Bitmap.createBitmap(geometry.getWidth(),
+						geometry.getHeight(), Bitmap.Config.ARGB_8888);
+				frame.copyPixelsFromBuffer(pixels);
+				frameCache.put(key, frame);
+			}
+			return true;
+		} catch (IOException e) {
+			Log.w(TAG, "Could not load frames from " + file, e);
+			return false;
+		} finally {
+			close(input);
+		}
+	}
+
+	/**
+	 * Store frames cached for the configuration of given drawable,
+	 * replacing any previously stored frames
+	 *
+	 * @return true if frames were stored
+	 */
+	public boolean save(MaterialMenuDrawable drawable) {
+		final MaterialMenuFrameCache frameCache = drawable.getFrameCache();
+		if (frameCache == null) {
+			return false;
+		}
+
+		final MaterialMenuGeometry geometry = drawable.getGeometry();
+		final Map<Long, Bitmap> frames = frameCache.snapshot();
+		final int frameBytes = geometry.getWidth() * geometry.getHeight() * 4;
+
+		int frameCount = 0;
+		for (Map.Entry<Long, Bitmap> entry : frames.entrySet()) {
+			if (matches(drawable, entry.getKey(), entry.getValue(), frameBytes)) {
+				frameCount++;
+			}
+		}
+		if (frameCount == 0) {
+			return false;
+		}
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			Log.w(TAG, "Could not create " + directory);
+			return false;
+		}
+
+		final File file = fileOf(drawable);
+		final File temp = new File(directory, file.getName() + ".tmp");
+		RandomAccessFile output = null;
+		try {
+			output = new RandomAccessFile(temp, "rw");
+			output.setLength(0);
+			final FileChannel channel = output.getChannel();
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(FORMAT_VERSION);
+			header.putInt(MaterialMenuGeometry.VERSION);
+			header.putInt(geometry.getWidth());
+			header.putInt(geometry.getHeight());
+			header.putInt(frameCache.getSteps());
+			header.putInt(frameBytes);
+			header.putInt(frameCount);
+			header.flip();
+			writeFully(channel, header);
+
+			final ByteBuffer frame = ByteBuffer.allocate(8 + frameBytes);
+			for (Map.Entry<Long, Bitmap> entry : frames.entrySet()) {
+				if (!matches(drawable, entry.getKey(), entry.getValue(),
+						frameBytes)) {
+					continue;
+				}
+				frame.clear();
+				frame.putLong(entry.getKey());
+				entry.getValue().copyPixelsToBuffer(frame);
+				frame.flip();
+				writeFully(channel, frame);
+			}
+
+			output.close();
+			output = null;
+			if (!temp.renameTo(file)) {
+				throw new IOException("Could not rename " + temp + " to " + file);
+			}
+			return true;
+		} catch (IOException e) {
+			Log.w(TAG, "Could not save frames to " + file, e);
+			temp.delete();
+			return false;
+		} finally {
+			close(output);
+		}
+	}
+
+	/**
+	 * Delete every stored frame file
+	 */
+	public void clear() {
+		final File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+	private static boolean matches(MaterialMenuDrawable drawable, long key,
+			Bitmap frame, int frameBytes) {
+		final MaterialMenuGeometry geometry = drawable.getGeometry();
+		return MaterialMenuFrameCache.matches(key, geometry.getStroke(),
+				geometry.getWidth(), drawable.getColor())
+				&& !frame.isRecycled()
+				&& frame.getRowBytes() * frame.getHeight() == frameBytes;
+	}
+
+	private File fileOf(MaterialMenuDrawable drawable) {
+		final MaterialMenuGeometry geometry = drawable.getGeometry();
+		return new File(directory, String.format(Locale.US,
+				"%08x-%s-%08x.frames", Float.floatToIntBits(geometry.getDip1()),
+				geometry.getStroke().name().toLowerCase(Locale.US),
+				drawable.getColor()));
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static void close(RandomAccessFile file) {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+}
@@ -18,16 +18,25 @@ package com.example.library;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.PixelFormat;
+import android.graphics.Rect;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.content.ContentResolver;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.provider.Settings;
 import android.util.Log;
 import android.util.TypedValue;
-import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 
 import com.nineoldandroids.animation.Animator;
@@ -35,6 +44,9 @@ import com.nineoldandroids.animation.AnimatorListenerAdapter;
 import com.nineoldandroids.animation.ObjectAnimator;
 import com.nineoldandroids.util.Property;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static android.graphics.Paint.Style;
 import static com.nineoldandroids.animation.Animator.AnimatorListener;
 
@@ -45,80 +57,77 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 	}
 
 	public enum AnimationState {
-		BURGER_ARROW, BURGER_X, BURGER_CHECK, BURGER_UP, BURGER_DOWN, ARROW_X, ARROW_CHECK, ARROW_UP, ARROW_DOWN, X_CHECK, X_UP, X_DOWN, CHECK_UP, CHECK_DOWN, UP_DOWN;
+		BURGER_ARROW(IconState.BURGER, IconState.ARROW),
+		BURGER_X(IconState.BURGER, IconState.X),
+		BURGER_CHECK(IconState.BURGER, IconState.CHECK),
+		BURGER_UP(IconState.BURGER, IconState.UP),
+		BURGER_DOWN(IconState.BURGER, IconState.DOWN),
+		ARROW_X(IconState.ARROW, IconState.X),
+		ARROW_CHECK(IconState.ARROW, IconState.CHECK),
+		ARROW_UP(IconState.ARROW, IconState.UP),
+		ARROW_DOWN(IconState.ARROW, IconState.DOWN),
+		X_CHECK(IconState.X, IconState.CHECK),
+		X_UP(IconState.X, IconState.UP),
+		X_DOWN(IconState.X, IconState.DOWN),
+		CHECK_UP(IconState.CHECK, IconState.UP),
+		CHECK_DOWN(IconState.CHECK, IconState.DOWN),
+		UP_DOWN(IconState.UP, IconState.DOWN);
 
-		public IconState getFirstState() {
-			switch (this) {
-			case BURGER_ARROW:
-				return IconState.BURGER;
-			case BURGER_X:
-				return IconState.BURGER;
-			case BURGER_CHECK:
-				return IconState.BURGER;
-			case BURGER_UP:
-				return IconState.BURGER;
-			case BURGER_DOWN:
-				return IconState.BURGER;
-			case ARROW_X:
-				return IconState.ARROW;
-			case ARROW_CHECK:
-				return IconState.ARROW;
-			case ARROW_UP:
-				return IconState.ARROW;
-			case ARROW_DOWN:
-				return IconState.ARROW;
-			case X_CHECK:
-				return IconState.X;
-			case X_UP:
-				return IconState.X;
-			case X_DOWN:
-				return IconState.X;
-			case CHECK_UP:
-				return IconState.CHECK;
-			case CHECK_DOWN:
-				return IconState.CHECK;
-			case UP_DOWN:
-				return IconState.UP;
-			default:
-				return null;
+		/**
+		 * Transformation between two icon states, indexed by ordinals of
+		 * the current and the target state
+		 */
+		private static final AnimationState[][] TRANSITIONS;
+
+		/**
+		 * True where the current state is the first state of the
+		 * transformation
+		 */
+		private static final boolean[][] FORWARD;
+
+		static {
+			final int count = IconState.values().length;
+			TRANSITIONS = new AnimationState[count][count];
+			FORWARD = new boolean[count][count];
+			for (AnimationState state : values()) {
+				final int first = state.firstState.ordinal();
+				final int second = state.secondState.ordinal();
+				TRANSITIONS[first][second] = state;
+				TRANSITIONS[second][first] = state;
+				FORWARD[first][second] = true;
 			}
 		}
 
+		private final IconState firstState;
+		private final IconState secondState;
+
+		AnimationState(IconState firstState, IconState secondState) {
+			this.firstState = firstState;
+			this.secondState = secondState;
+		}
+
+		public IconState getFirstState() {
+			return firstState;
+		}
+
 		public IconState getSecondState() {
-			switch (this) {
-			case BURGER_ARROW:
-				return IconState.ARROW;
-			case BURGER_X:
-				return IconState.X;
-			case BURGER_CHECK:
-				return IconState.CHECK;
-			case BURGER_UP:
-				return IconState.UP;
-			case BURGER_DOWN:
-				return IconState.DOWN;
-			case ARROW_X:
-				return IconState.X;
-			case ARROW_UP:
-				return IconState.UP;
-			case ARROW_DOWN:
-				return IconState.DOWN;
-			case ARROW_CHECK:
-				return IconState.CHECK;
-			case X_CHECK:
-				return IconState.CHECK;
-			case X_UP:
-				return IconState.UP;
-			case X_DOWN:
-				return IconState.DOWN;
-			case CHECK_UP:
-				return IconState.UP;
-			case CHECK_DOWN:
-				return IconState.DOWN;
-			case UP_DOWN:
-				return IconState.DOWN;
-			default:
-				return null;
-			}
+			return secondState;
+		}
+
+		/**
+		 * @return transformation between given states or null if both are
+		 *         the same
+		 */
+		static AnimationState between(IconState current, IconState target) {
+			return TRANSITIONS[current.ordinal()][target.ordinal()];
+		}
+
+		/**
+		 * @return true if morphing from current to target state goes from
+		 *         the first to the second state
+		 */
+		static boolean isForward(IconState current, IconState target) {
+			return FORWARD[current.ordinal()][target.ordinal()];
 		}
 	}
 
@@ -142,6 +151,10 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 			this.strokeWidth = strokeWidth;
 		}
 
+		int getStrokeWidth() {
+			return strokeWidth;
+		}
+
 		protected static Stroke valueOf(int strokeWidth) {
 			switch (strokeWidth) {
 			case 3:
@@ -156,26 +169,79 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 		}
 	}
 
+	public enum RenderMode {
+		/**
+		 * Rotate the canvas for every line
+		 */
+		CANVAS,
+		/**
+		 * Compute line end points in software and draw them with a single
+		 * {@link Canvas#drawLines(float[], int, int, Paint)} call when line
+		 * alphas allow it. Leaves the canvas transformation untouched.
+		 */
+		LINES
+	}
+
+	public enum AnimationBackend {
+		/**
+		 * Animate through {@link ObjectAnimator} and boxed properties
+		 */
+		OBJECT_ANIMATOR,
+		/**
+		 * Animate from frame callbacks without allocating per frame
+		 */
+		FRAME_CALLBACK,
+		/**
+		 * Like {@link #FRAME_CALLBACK}, but move the transformation with a
+		 * damped spring that keeps its velocity when redirected. Durations
+		 * and the transformation interpolator are ignored.
+		 */
+		SPRING
+	}
+
+	public enum MotionPolicy {
+		/**
+		 * Animate at the display frame rate
+		 */
+		FULL,
+		/**
+		 * Apply animation frames at most at the rate set with
+		 * {@link #setFrameRateCap(int)}
+		 */
+		CAPPED,
+		/**
+		 * Do not animate, jump to target icon states right away
+		 */
+		REDUCED,
+		/**
+		 * Behave as {@link #REDUCED} while animations are turned off in the
+		 * developer options or battery saver is on, as {@link #FULL}
+		 * otherwise. The system state is checked when a transition starts,
+		 * running animations are not affected.
+		 *
+		 * @see #isSystemMotionReduced(Context)
+		 */
+		SYSTEM
+	}
+
+	/**
+	 * Receives the area changed by an animation frame, in drawable
+	 * coordinates
+	 */
+	interface DirtyRegionCallback {
+		void invalidateDrawable(Drawable who, Rect dirty);
+	}
+
 	public static final int DEFAULT_COLOR = Color.WHITE;
 	public static final int DEFAULT_SCALE = 1;
 	public static final int DEFAULT_TRANSFORM_DURATION = 800;
 	public static final int DEFAULT_PRESSED_DURATION = 400;
-
-	private static final int BASE_DRAWABLE_WIDTH = 40;
-	private static final int BASE_DRAWABLE_HEIGHT = 40;
-	private static final int BASE_ICON_WIDTH = 20;
-	private static final int BASE_CIRCLE_RADIUS = 18;
-
-	private static final float ARROW_MID_LINE_ANGLE = 180;
-	private static final float ARROW_TOP_LINE_ANGLE = 135;
-	private static final float ARROW_BOT_LINE_ANGLE = 225;
-	private static final float X_TOP_LINE_ANGLE = 44;
-	private static final float X_BOT_LINE_ANGLE = -44;
-	private static final float X_ROTATION_ANGLE = 90;
-	private static final float CHECK_MIDDLE_ANGLE = 135;
-	private static final float CHECK_BOTTOM_ANGLE = -90;
-	private static final float UP_TOP_ANGLE = -30;
-	private static final float UP_BOTTOM_ANGLE = 30;
+	/**
+	 * Default number of subdivisions per pixel line end points are compared
+	 * at before a frame is considered unchanged
+	 */
+	public static final int DEFAULT_FRAME_GRID = 4;
+	public static final int DEFAULT_FRAME_RATE_CAP = 30;
 
 	private static final float TRANSFORMATION_START = 0;
 	private static final float TRANSFORMATION_MID = 1.0f;
@@ -183,25 +249,79 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 	private static final int DEFAULT_CIRCLE_ALPHA = 200;
 
-	private final float diph;
-	private final float dip1;
-	private final float dip2;
-	private final float dip3;
-	private final float dip4;
-	private final float dip6;
-	private final float dip8;
+	private static final IconState[] ICON_STATES = IconState.values();
+	private static final AnimationState[] ANIMATION_STATES = AnimationState.values();
+
+	/*
+	 * Render state word: transformation value bits in the upper half, flags
+	 * and ordinals in the lower half
+	 */
+	private static final long ANIMATION_STATE_MASK = 0xf;
+	private static final int ICON_STATE_SHIFT = 4;
+	private static final long ICON_STATE_MASK = 0x7;
+	private static final long RTL_BIT = 1 << 7;
+	private static final long TOUCH_BIT = 1 << 8;
+	private static final long RESTING_BIT = 1 << 9;
+
+	/**
+	 * Shortest fraction of the transformation duration a transition heading
+	 * back to the icon it started from takes
+	 */
+	private static final float MIN_RETARGET_SCALE = 0.25f;
+
+	/**
+	 * Seconds of motion at release velocity considered when choosing the
+	 * state a scrubbed icon settles on
+	 */
+	private static final float SCRUB_FLING_LOOKAHEAD = 0.15f;
+	/**
+	 * Milliseconds without a new offset, about two frames, after which the
+	 * gesture is considered to have stopped
+	 */
+	private static final long SCRUB_VELOCITY_TIMEOUT = 32;
+	private static final int NO_PENDING_STATE = 0;
+	private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Milliseconds a capped frame may arrive early, absorbs vsync jitter
+	 */
+	private static final long FRAME_RATE_CAP_TOLERANCE = 4;
+
+	/**
+	 * Milliseconds the system motion settings are cached for under
+	 * {@link MotionPolicy#SYSTEM}
+	 */
+	private static final long SYSTEM_MOTION_POLL_INTERVAL = 1000;
+	private static final String ANIMATOR_DURATION_SCALE = "animator_duration_scale";
+
+	private static volatile MotionPolicy motionPolicy = MotionPolicy.FULL;
+	private static volatile int frameRateCap = DEFAULT_FRAME_RATE_CAP;
+
+	// main thread only
+	private static Context applicationContext;
+	private static boolean systemMotionReduced;
+	private static long systemMotionCheckTime = -SYSTEM_MOTION_POLL_INTERVAL;
 
 	private final int width;
 	private final int height;
-	private final float strokeWidth;
-	private final float iconWidth;
-	private final float topPadding;
-	private final float sidePadding;
 	private final float circleRadius;
 
 	private final Stroke stroke;
 
-	private final Object lock = new Object();
+	private final MaterialMenuGeometry geometry;
+	private final float[] frame = new float[MaterialMenuGeometry.FRAME_SIZE];
+	private final float[] points = new float[MaterialMenuGeometry.POINTS_SIZE];
+	private final float[] dirtyFrame = new float[MaterialMenuGeometry.FRAME_SIZE];
+	private final float[] dirtyPoints = new float[MaterialMenuGeometry.POINTS_SIZE];
+	private final Rect animatedBounds = new Rect();
+	private final Rect dirtyBounds = new Rect();
+	private boolean animatedBoundsValid;
+	private DirtyRegionCallback dirtyRegionCallback;
+	private final int[] drawnFrame = new int[MaterialMenuGeometry.POINTS_SIZE
+			+ MaterialMenuGeometry.LINE_COUNT];
+	private boolean drawnFrameValid;
+	private int frameGrid = DEFAULT_FRAME_GRID;
+	private int skippedFrameCount;
 
 	private final Paint iconPaint = new Paint();
 	private final Paint circlePaint = new Paint();
@@ -217,13 +337,90 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 	private boolean drawTouchCircle;
 	private boolean neverDrawTouch;
 	private boolean rtlEnabled;
+	private RenderMode renderMode = RenderMode.CANVAS;
+	private MaterialMenuFrameCache frameCache;
+	private boolean sharedFrameCache;
+	private MaterialMenuPictureCache pictureCache;
+	private MaterialMenuRestingFrames restingFrames;
+	private boolean resting = true;
+
+	/**
+	 * Snapshots of the state fields read by {@link #draw(Canvas)}, each
+	 * published with a single write whenever the fields change
+	 */
+	private volatile long renderState;
+	private volatile long pressState;
+
+	/**
+	 * Path played as one transformation, used instead of
+	 * {@link #animationState} while not null. Replaced as a whole so that
+	 * {@link #draw(Canvas)} reads it once.
+	 */
+	private volatile TransformationPath transformationPath;
+	private final float[] pathFrame = new float[MaterialMenuGeometry.FRAME_SIZE];
+	private boolean restartingTransformation;
+	/**
+	 * Set while a running transformation is restarted towards a new target,
+	 * listeners of the drawable see one continuous animation
+	 */
+	private boolean continuingTransformation;
+	private boolean restartingPressedCircle;
+
+	/**
+	 * Latest offset passed to
+	 * {@link #scrubTransformationOffset(AnimationState, float)}, applied once
+	 * per frame
+	 */
+	private AnimationState scrubState;
+	private float scrubOffset;
+	private boolean scrubScheduled;
+	private long scrubFrameTime = -1;
+	private float scrubVelocity;
+	private final MaterialMenuFrameClock.Callback scrubCallback = new MaterialMenuFrameClock.Callback() {
+		@Override
+		public void doFrame(long frameTime) {
+			MaterialMenuFrameClock.getInstance().removeCallback(this);
+			scrubScheduled = false;
+			trackScrubVelocity(frameTime);
+			applyScrubOffset();
+		}
+	};
 
-	private ObjectAnimator transformation;
-	private ObjectAnimator pressedCircle;
+	private AnimationBackend animationBackend = AnimationBackend.OBJECT_ANIMATOR;
+	private Animator transformation;
+	private Animator pressedCircle;
+	private int transformationDuration;
+	private int pressedDuration;
+	private float transformationStartValue;
+	private float springStiffness = MaterialMenuSpringAnimator.DEFAULT_STIFFNESS;
+	private float springDampingRatio = MaterialMenuSpringAnimator.DEFAULT_DAMPING_RATIO;
+	private long lastTransformationFrame;
+	private long lastPressedFrame;
+	private boolean suspendPosted;
+	private final Runnable suspendAnimations = new Runnable() {
+		@Override
+		public void run() {
+			suspendPosted = false;
+			suspendAnimations();
+		}
+	};
+	private Interpolator transformationInterpolator = MaterialMenuEasing.DECELERATE_SEXTIC;
 	private AnimatorListener animatorListener;
+	private AnimatorListener hostListener;
 
 	private MaterialMenuState materialMenuState;
 
+	/**
+	 * Latest posted icon state, see {@link #postIconState(IconState, boolean)}
+	 */
+	private final AtomicInteger pendingIconState = new AtomicInteger(NO_PENDING_STATE);
+	private final Runnable pendingIconStateDrain = new Runnable() {
+		@Override
+		public void run() {
+			drainPendingIconState();
+		}
+	};
+
 	public MaterialMenuDrawable(Context context, int color, Stroke stroke) {
 		this(context, color, stroke, DEFAULT_SCALE, DEFAULT_TRANSFORM_DURATION,
 				DEFAULT_PRESSED_DURATION);
@@ -237,63 +434,38 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 	public MaterialMenuDrawable(Context context, int color, Stroke stroke,
 			int scale, int transformDuration, int pressedDuration) {
-		Resources resources = context.getResources();
-		// convert each separately due to various densities
-		this.dip1 = dpToPx(resources, 1) * scale;
-		this.dip2 = dpToPx(resources, 2) * scale;
-		this.dip3 = dpToPx(resources, 3) * scale;
-		this.dip4 = dpToPx(resources, 4) * scale;
-		this.dip6 = dpToPx(resources, 6) * scale;
-		this.dip8 = dpToPx(resources, 8) * scale;
-		this.diph = dip1 / 2;
-
-		this.stroke = stroke;
-		this.width = (int) (dpToPx(resources, BASE_DRAWABLE_WIDTH) * scale);
-		this.height = (int) (dpToPx(resources, BASE_DRAWABLE_HEIGHT) * scale);
-		this.iconWidth = dpToPx(resources, BASE_ICON_WIDTH) * scale;
-		this.circleRadius = dpToPx(resources, BASE_CIRCLE_RADIUS) * scale;
-		this.strokeWidth = dpToPx(resources, stroke.strokeWidth) * scale;
-
-		this.sidePadding = (width - iconWidth) / 2;
-		this.topPadding = (height - 5 * dip3) / 2;
+		this(MaterialMenuRegistry.obtainGeometry(dpToPx(context.getResources(),
+				1) * scale, stroke), color, transformDuration, pressedDuration,
+				AnimationBackend.OBJECT_ANIMATOR);
+		if (applicationContext == null) {
+			applicationContext = context.getApplicationContext();
+		}
+	}
 
-		initPaint(color);
-		initAnimations(transformDuration, pressedDuration);
-
-		materialMenuState = new MaterialMenuState();
-		
-	}
-
-	private MaterialMenuDrawable(int color, Stroke stroke,
-			long transformDuration, long pressedDuration, int width,
-			int height, float iconWidth, float circleRadius, float strokeWidth,
-			float dip1) {
-		this.dip1 = dip1;
-		this.dip2 = dip1 * 2;
-		this.dip3 = dip1 * 3;
-		this.dip4 = dip1 * 4;
-		this.dip6 = dip1 * 6;
-		this.dip8 = dip1 * 8;
-		this.diph = dip1 / 2;
-		this.stroke = stroke;
-		this.width = width;
-		this.height = height;
-		this.iconWidth = iconWidth;
-		this.circleRadius = circleRadius;
-		this.strokeWidth = strokeWidth;
-		this.sidePadding = (width - iconWidth) / 2;
-		this.topPadding = (height - 5 * dip3) / 2;
+	private MaterialMenuDrawable(MaterialMenuGeometry geometry, int color,
+			long transformDuration, long pressedDuration,
+			AnimationBackend animationBackend) {
+		this.stroke = geometry.getStroke();
+		this.geometry = geometry;
+		this.width = geometry.getWidth();
+		this.height = geometry.getHeight();
+		this.circleRadius = geometry.getCircleRadius();
+		this.animationBackend = animationBackend;
+
+		this.transformationDuration = (int) transformDuration;
+		this.pressedDuration = (int) pressedDuration;
 
 		initPaint(color);
-		initAnimations((int) transformDuration, (int) pressedDuration);
+		publishRenderState();
+		publishPressState();
 
-		materialMenuState = new MaterialMenuState();
+		materialMenuState = new MaterialMenuState(geometry);
 	}
 
 	private void initPaint(int color) {
 		iconPaint.setAntiAlias(true);
 		iconPaint.setStyle(Style.STROKE);
-		iconPaint.setStrokeWidth(strokeWidth);
+		iconPaint.setStrokeWidth(geometry.getStrokeWidth());
 		iconPaint.setColor(color);
 
 		circlePaint.setAntiAlias(true);
@@ -310,798 +482,204 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 	@Override
 	public void draw(Canvas canvas) {
+		// read everything a frame depends on at once
+		final long renderState = this.renderState;
+		final long pressState = this.pressState;
+
+		final AnimationState animationState = ANIMATION_STATES[(int) (renderState & ANIMATION_STATE_MASK)];
+		final float transformationValue = Float.intBitsToFloat((int) (renderState >>> 32));
+		final boolean rtl = (renderState & RTL_BIT) != 0;
+		final TransformationPath transformationPath = this.transformationPath;
+
+		if (transformationPath != null) {
+			drawPathIcon(canvas, transformationPath, transformationValue, rtl);
+		// resting frames are shared by color only
+		} else if ((renderState & RESTING_BIT) != 0
+				&& iconPaint.getColorFilter() == null) {
+			drawRestingFrame(canvas, ICON_STATES[(int) (renderState
+					>> ICON_STATE_SHIFT & ICON_STATE_MASK)], animationState,
+					transformationValue, rtl);
+		// frames are cached by color only
+		} else if (frameCache != null && iconPaint.getColorFilter() == null) {
+			drawCachedFrame(canvas, animationState, transformationValue, rtl);
+		} else if (pictureCache != null
+				&& MaterialMenuPictureCache.canDraw(canvas)) {
+			drawRecordedFrame(canvas, animationState, transformationValue, rtl);
+		} else {
+			drawIcon(canvas, animationState, transformationValue, rtl);
+		}
+
+		if ((renderState & TOUCH_BIT) != 0)
+			drawTouchCircle(canvas, Float.intBitsToFloat((int) pressState),
+					(int) (pressState >>> 32));
+	}
+
+	private void drawIcon(Canvas canvas, AnimationState animationState,
+			float transformationValue, boolean rtl) {
 		final float ratio = transformationValue <= 1 ? transformationValue
 				: 2 - transformationValue;
 
-		if (rtlEnabled) {
-			canvas.save();
-			canvas.scale(-1, 1, 0, 0);
-			canvas.translate(-getIntrinsicWidth(), 0);
-		}
+		geometry.resolveFrame(animationState, ratio, transformationValue <= 1,
+				frame);
+		drawFrame(canvas, rtl);
+	}
 
-		drawTopLine(canvas, ratio);
-		drawMiddleLine(canvas, ratio);
-		drawBottomLine(canvas, ratio);
+	private void drawPathIcon(Canvas canvas,
+			TransformationPath transformationPath, float transformationValue,
+			boolean rtl) {
+		transformationPath.resolveFrame(geometry, transformationValue, frame);
+		drawFrame(canvas, rtl);
+	}
 
-		if (rtlEnabled) {
-			canvas.restore();
+	private void drawFrame(Canvas canvas, boolean rtl) {
+		if (renderMode == RenderMode.LINES) {
+			drawLines(canvas, rtl);
+		} else {
+			drawRotatedLines(canvas, rtl);
 		}
-
-		if (drawTouchCircle)
-			drawTouchCircle(canvas);
 	}
 
-	private void drawTouchCircle(Canvas canvas) {
-		canvas.restore();
-		canvas.drawCircle(width / 2, height / 2, pressedProgressValue,
-				circlePaint);
+	private void drawCachedFrame(Canvas canvas, AnimationState animationState,
+			float transformationValue, boolean rtlEnabled) {
+		final int step = frameCache.quantize(transformationValue);
+		final long key = MaterialMenuFrameCache.keyOf(animationState, step,
+				stroke, width, iconPaint.getColor(), rtlEnabled);
+
+		Bitmap bitmap = frameCache.get(key);
+		if (bitmap == null) {
+			bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			drawIcon(new Canvas(bitmap), animationState,
+					frameCache.valueOf(step), rtlEnabled);
+			frameCache.put(key, bitmap);
+		}
+		canvas.drawBitmap(bitmap, 0, 0, null);
 	}
 
-	/**
-	 * 
-	* <p>Author: LHF</p>
-	* <p> @date 2015326 6:05:57 </p>
-	* <p>Description: 
-	* 
-	* 	ҲдĶЧ
-	* 	Ҫ˼ǣץסһͼεĽ״̬Ҫͼε״̬Ȼratio01ͼȻȻĶ
-	* 	Ҫ Arrow_up ҵB_AB_up
-	* 
-	* 
-	* 
-	* 
-	* 
-	* 
-	* 
-	* </p> 
-	* @param canvas
-	* @param ratio
-	 */
-	
-	
-	// ߶
-	private void drawMiddleLine(Canvas canvas, float ratio) {
-		canvas.restore();
-		canvas.save();
+	private void drawRestingFrame(Canvas canvas, IconState iconState,
+			AnimationState animationState, float transformationValue,
+			boolean rtlEnabled) {
+		if (restingFrames == null) {
+			restingFrames = MaterialMenuRegistry.obtainRestingFrames(geometry,
+					iconPaint.getColor());
+		}
 
-		float rotation = 0;
-		float pivotX = width / 2;
-		float pivotY = width / 2;
-		float startX = sidePadding;
-		float startY = topPadding + dip3 / 2 * 5;
-		float stopX = width - sidePadding;
-		float stopY = topPadding + dip3 / 2 * 5;
-		int alpha = 255;
-
-		switch (animationState) {
-		case BURGER_ARROW:
-			// rotate by 180
-			if (isMorphingForward()) {
-				rotation = ratio * ARROW_MID_LINE_ANGLE;
-			} else {
-				rotation = ARROW_MID_LINE_ANGLE + (1 - ratio)
-						* ARROW_MID_LINE_ANGLE;
+		final int index = MaterialMenuRestingFrames.indexOf(iconState,
+				rtlEnabled);
+		if (MaterialMenuPictureCache.canDraw(canvas)) {
+			Picture picture = restingFrames.getPicture(index);
+			if (picture == null) {
+				picture = new Picture();
+				drawIcon(picture.beginRecording(width, height), animationState,
+						transformationValue, rtlEnabled);
+				picture.endRecording();
+				restingFrames.putPicture(index, picture);
 			}
-			// shorten one end
-			stopX -= ratio * resolveStrokeModifier(ratio) / 2;
-			break;
-		case BURGER_X:
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case BURGER_CHECK:
-			// rotate until required angle
-			rotation = ratio * CHECK_MIDDLE_ANGLE;
-			// lengthen both ends
-			startX += ratio * (dip4 + dip3 / 2);
-			stopX += ratio * dip1;
-			pivotX = width / 2 + dip3 + diph;
-			break;
-		case BURGER_UP:
-			// ˶̫⡣
-			// rotation = CHECK_MIDDLE_ANGLE * ratio;
-			// startX += (dip4 + dip3 / 2) * ratio;
-			// stopX += dip1 * ratio;
-			// pivotX = (width / 2 + dip3 + diph)* ratio;
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case BURGER_DOWN:
-			// ˶̫⡣
-			// rotation = CHECK_MIDDLE_ANGLE * ratio;
-			// startX += (dip4 + dip3 / 2) * ratio;
-			// stopX += dip1 * ratio;
-			// pivotX = (width / 2 + dip3 + diph) * ratio;
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case ARROW_X:
-			// fade out and shorten one end
-			alpha = (int) ((1 - ratio) * 255);
-			startX += (1 - ratio) * dip2;
-			break;
-		case ARROW_CHECK:
-			if (isMorphingForward()) {
-				// rotate until required angle
-				rotation = ratio * CHECK_MIDDLE_ANGLE;
-			} else {
-				// rotate back to starting angle
-				rotation = CHECK_MIDDLE_ANGLE - CHECK_MIDDLE_ANGLE
-						* (1 - ratio);
+			canvas.drawPicture(picture);
+		} else {
+			Bitmap bitmap = restingFrames.getBitmap(index);
+			if (bitmap == null) {
+				bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+				drawIcon(new Canvas(bitmap), animationState,
+						transformationValue, rtlEnabled);
+				restingFrames.putBitmap(index, bitmap);
 			}
-			// shorten one end and lengthen the other
-			startX += dip3 / 2 + dip4 - (1 - ratio) * dip2;
-			stopX += ratio * dip1;
-			pivotX = width / 2 + dip3 + diph;
-			break;
-		case ARROW_UP:
-			startX += (1 - ratio) * dip2;
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case ARROW_DOWN:
-			startX += (1 - ratio) * dip2;
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case X_CHECK:
-			// fade in
-			alpha = (int) (ratio * 255);
-			// rotation to check angle
-			rotation = ratio * CHECK_MIDDLE_ANGLE;
-			// lengthen both ends
-			startX += ratio * (dip4 + dip3 / 2);
-			stopX += ratio * dip1;
-			pivotX = width / 2 + dip3 + diph;
-			break;
-		case X_UP:
-			alpha = 0;
-			break;
-		case X_DOWN:
-			alpha = 0;
-			break;
-		case CHECK_UP:
-			// check״ֻ̬ǵ
-			// rotation to check angle
-			rotation = CHECK_MIDDLE_ANGLE * (1 - ratio);
-			// lengthen both ends
-			startX += (dip4 + dip3 / 2) * (1 - ratio);
-			stopX += dip1 * (1 - ratio);
-			pivotX = (width / 2 + dip3 + diph) * (1 - ratio);
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case CHECK_DOWN:
-			// rotation to check angle
-			rotation = CHECK_MIDDLE_ANGLE * (1 - ratio);
-			// lengthen both ends
-			startX += (dip4 + dip3 / 2) * (1 - ratio);
-			stopX += dip1 * (1 - ratio);
-			pivotX = (width / 2 + dip3 + diph) * (1 - ratio);
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-
-			break;
-		case UP_DOWN:
-			alpha = 0;
-			break;
-		default:
-			break;
-
+			canvas.drawBitmap(bitmap, 0, 0, null);
 		}
-
-		iconPaint.setAlpha(alpha);// 255 -> 0 A->
-		canvas.rotate(rotation, pivotX, pivotY);// 0 400 400 -> 0 400 400
-		canvas.drawLine(startX, startY, stopX, stopY, iconPaint);// 240 400 600
-																	// 400 ->
-																	// 200 400
-																	// 600 400
-		iconPaint.setAlpha(255);
 	}
 
-	// ߵĶ
-	private void drawTopLine(Canvas canvas, float ratio) {
-		canvas.save();
-
-		float rotation = 0, pivotX = 0, pivotY = 0;
-		float rotation2 = 0;
-		// pivot at center of line
-		float pivotX2 = width / 2 + dip3 / 2;
-		float pivotY2 = topPadding + dip2;
-
-		float startX = sidePadding;
-		float startY = topPadding + dip2;
-		float stopX = width - sidePadding;
-		float stopY = topPadding + dip2;
-		int alpha = 255;
-		// ratio 0.0 -> 1.0
-		// Log.i("LHF", "MaterialMenuDrawable.drawTopLine.ratio:"+ratio);
-
-		switch (animationState) {
-		case BURGER_ARROW:
-			if (isMorphingForward()) {
-				// rotate until required angle
-				rotation = ratio * ARROW_BOT_LINE_ANGLE;
-			} else {
-				// rotate back to start doing a 360
-				rotation = ARROW_BOT_LINE_ANGLE + (1 - ratio)
-						* ARROW_TOP_LINE_ANGLE;
-			}
-			// rotate by middle
-			pivotX = width / 2;
-			pivotY = height / 2;
-
-			// shorten both ends
-			stopX -= resolveStrokeModifier(ratio);
-			startX += dip3 * ratio;
-
-			break;
-		case BURGER_X:
-			// rotate until required angles
-			rotation = X_TOP_LINE_ANGLE * ratio;
-			rotation2 = X_ROTATION_ANGLE * ratio;
-
-			// pivot at left corner of line
-			pivotX = sidePadding + dip4;
-			pivotY = topPadding + dip3;
-
-			// shorten one end
-			startX += dip3 * ratio;
-			break;
-		case BURGER_CHECK:
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case BURGER_UP:
-			// rotation = -360 * ratio;//-30
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX -= dip3 * ratio; // ע start+ stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-			// ע /TOP ϵ -> ҲΪ0
-			// ֹͣʱͼ
-			// Log.i("LHF", "MaterialMenuDrawable.drawTopLine.ratio:"+ratio);
-			// rotation = -30;//-30
-			// pivotX = width / 2;//עתѡ
-			// pivotY = height / 3;
-			// rotation2 = 0;
-			// pivotX2 = 0;
-			// pivotY2 = 0;
-			// //ʵǻȻתȷλ
-			// startX = 60;
-			// startY = height / 3;
-			// stopX = width / 2;
-			// stopY = height / 3;
-			break;
-		case BURGER_DOWN:
-			rotation = 180 * ratio;// -30
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX -= dip3 * ratio; // ע start+ stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			// rotation = (-30+180)*ratio;//-30
-			// pivotX = width / 2;//עתѡ
-			// pivotY = ((height*2)/ 3) * ratio;
-			// rotation2 = 0;
-			// pivotX2 = 0;
-			// pivotY2 = 0;
-			// //ʵǻȻתȷλ
-			// startX = 60;
-			// startY = height / 3;
-			// stopX = width / 2;
-			// stopY = height / 3;
-			break;
-		case ARROW_X:
-			// rotate from ARROW angle to X angle
-			rotation = ARROW_BOT_LINE_ANGLE
-					+ (X_TOP_LINE_ANGLE - ARROW_BOT_LINE_ANGLE) * ratio;
-			rotation2 = X_ROTATION_ANGLE * ratio;
-
-			// move pivot from ARROW pivot to X pivot
-			pivotX = width / 2 + (sidePadding + dip4 - width / 2) * ratio;
-			pivotY = height / 2 + (topPadding + dip3 - height / 2) * ratio;
-
-			// lengthen both ends
-			stopX -= resolveStrokeModifier(ratio);
-			startX += dip3;
-			break;
-		case ARROW_CHECK:
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-			// retain starting arrow configuration
-			rotation = ARROW_BOT_LINE_ANGLE;
-			pivotX = width / 2;
-			pivotY = height / 2;
-
-			// shorted both ends
-			stopX -= resolveStrokeModifier(1);
-			startX += dip3;
-			break;
-		case ARROW_UP:
-
-			rotation = ARROW_BOT_LINE_ANGLE * (1 - ratio);
-			rotation2 = UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			// rotate by middle
-			pivotX = width / 2;
-			pivotY = height / 2;
-
-			// shorten both ends
-			stopX -= resolveStrokeModifier(ratio) * (1 - ratio) + (dip8 + dip2)
-					* ratio;
-			startX += dip3 * (1 - ratio) - dip3 * ratio;
-			// stopX -= (dip8+dip2) * ratio;
-			// startX -= dip3 * ratio;
-
-			break;
-		case ARROW_DOWN:
-
-			rotation = ARROW_BOT_LINE_ANGLE * (1 - ratio) + 180 * ratio;
-			rotation2 = UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			// rotate by middle
-			pivotX = width / 2;
-			pivotY = height / 2;
-
-			// shorten both ends
-			stopX -= resolveStrokeModifier(ratio) * (1 - ratio) + (dip8 + dip2)
-					* ratio;
-			startX += dip3 * (1 - ratio) - dip3 * ratio;
-
-			break;
-		case X_CHECK:
-			// retain X configuration
-			rotation = X_TOP_LINE_ANGLE;
-			rotation2 = X_ROTATION_ANGLE;
-			pivotX = sidePadding + dip4;
-			pivotY = topPadding + dip3;
-			stopX += dip3 - dip3 * (1 - ratio);
-			startX += dip3;
-
-			// fade out
-			alpha = (int) ((1 - ratio) * 255);
-			break;
-		case X_UP:
-
-			// rotation2 = X_ROTATION_ANGLE * ratio;
-			// pivotX = sidePadding + dip4;
-			// pivotY = topPadding + dip3;
-			// startX += dip3 * ratio;
-
-			rotation = X_TOP_LINE_ANGLE * (1 - ratio);
-			pivotX = (sidePadding + dip4) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (topPadding + dip3) * (1 - ratio) + (height / 2) * ratio;
-			rotation2 = X_ROTATION_ANGLE * (1 - ratio) + UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX += dip3 * (1 - ratio) - dip3 * ratio; // ע start+
-															// stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			break;
-		case X_DOWN:
-
-			rotation = X_TOP_LINE_ANGLE * (1 - ratio) + 180 * ratio;// -30
-			pivotX = (sidePadding + dip4) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (topPadding + dip3) * (1 - ratio) + (height / 2) * ratio;
-			rotation2 = X_ROTATION_ANGLE * (1 - ratio) + UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX += dip3 * (1 - ratio) - dip3 * ratio; // ע start+
-															// stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			break;
-		case CHECK_UP:
-			alpha = (int) (ratio * 255);
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX -= dip3 * ratio; // ע start+ stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			// ע /TOP ϵ -> ҲΪ0
-			// rotation = -30;//-30
-			// pivotX = width / 2;//עתѡ
-			// pivotY = height / 3;
-			// rotation2 = 0;
-			// pivotX2 = 0;
-			// pivotY2 = 0;
-			// //ʵǻȻתȷλ
-			// startX = 60;
-			// startY = height / 3;
-			// stopX = width / 2;
-			// stopY = height / 3;
-			break;
-		case CHECK_DOWN:
-
-			// retain X configuration
-			// rotation = X_TOP_LINE_ANGLE;
-			// rotation2 = X_ROTATION_ANGLE;
-			// pivotX = sidePadding + dip4;
-			// pivotY = topPadding + dip3;
-			// stopX += dip3 - dip3 * (1 - ratio);
-			// startX += dip3;
-
-			rotation = X_TOP_LINE_ANGLE * (1 - ratio) + 180 * ratio;// -30
-			pivotX = (sidePadding + dip4) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (topPadding + dip3) * (1 - ratio) + (height / 2) * ratio;
-			rotation2 = X_ROTATION_ANGLE * (1 - ratio) + UP_TOP_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX += dip3 * (1 - ratio) - dip3 * ratio; // ע start+
-															// stop-
-			stopX += dip3 * (1 - ratio) - (dip8 + dip2) * ratio; // ע
-																	// start+
-																	// stop-
-
-			alpha = (int) (ratio * 255);
+	private void drawRecordedFrame(Canvas canvas,
+			AnimationState animationState, float transformationValue,
+			boolean rtlEnabled) {
+		final int step = pictureCache.quantize(transformationValue);
+		final int key = MaterialMenuPictureCache.keyOf(animationState, step,
+				rtlEnabled);
+
+		Picture picture = pictureCache.get(key);
+		if (picture == null) {
+			picture = new Picture();
+			drawIcon(picture.beginRecording(width, height), animationState,
+					pictureCache.valueOf(step), rtlEnabled);
+			picture.endRecording();
+			pictureCache.put(key, picture);
+		}
+		canvas.drawPicture(picture);
+	}
 
-			break;
-		case UP_DOWN:
-
-			rotation = 180 * ratio;// -30
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_TOP_ANGLE; // Ŧ2Ѿߵеˡ
-			startX -= dip3; // ע start+ stop-
-			stopX -= (dip8 + dip2); // ע start+ stop-
-
-			// rotation = ( -30 + 180 ) * ratio;//-30
-			// pivotX = width / 2 ;
-			// pivotY = ((height*2)/ 3) * ratio;
-			//
-			// //ʵǻȻתȷλ
-			// startX = 60;
-			// stopX = width/2;
-			// startY = height / 3;
-			// stopY = height / 3;
+	private void drawRotatedLines(Canvas canvas, boolean rtlEnabled) {
+		if (rtlEnabled) {
+			canvas.save();
+			canvas.scale(-1, 1, 0, 0);
+			canvas.translate(-getIntrinsicWidth(), 0);
+		}
 
-			break;
-		default:
-			break;
+		drawLine(canvas, MaterialMenuGeometry.LINE_TOP);
+		drawLine(canvas, MaterialMenuGeometry.LINE_MIDDLE);
+		drawLine(canvas, MaterialMenuGeometry.LINE_BOTTOM);
 
+		if (rtlEnabled) {
+			canvas.restore();
 		}
-
-		iconPaint.setAlpha(alpha);
-		canvas.rotate(rotation, pivotX, pivotY);// 225 400 400 -> 44 280 310
-		canvas.rotate(rotation2, pivotX2, pivotY2);// 0 430 290 -> 90 430 290
-		canvas.drawLine(startX, startY, stopX, stopY, iconPaint);// 260 290 520
-																	// 290 -> 3
-																	// 600
-		iconPaint.setAlpha(255);
 	}
 
-	// ±ߵĶ
-	private void drawBottomLine(Canvas canvas, float ratio) {
-		canvas.restore();
-		canvas.save();
+	private void drawLines(Canvas canvas, boolean rtlEnabled) {
+		geometry.resolvePoints(frame, rtlEnabled, points);
 
-		float rotation = 0, pivotX = 0, pivotY = 0;
-		float rotation2 = 0;
-		// pivot at center of line
-		float pivotX2 = width / 2 + dip3 / 2;
-		float pivotY2 = height - topPadding - dip2;
-
-		float startX = sidePadding;
-		float startY = height - topPadding - dip2;
-		float stopX = width - sidePadding;
-		float stopY = height - topPadding - dip2;
-
-		switch (animationState) {
-		case BURGER_ARROW:
-			if (isMorphingForward()) {
-				// rotate to required angle
-				rotation = ARROW_TOP_LINE_ANGLE * ratio;
-			} else {
-				// rotate back to start doing a 360
-				rotation = ARROW_TOP_LINE_ANGLE + (1 - ratio)
-						* ARROW_BOT_LINE_ANGLE;
+		// lines sharing the same alpha are drawn in one call
+		int first = 0;
+		for (int line = 1; line <= MaterialMenuGeometry.LINE_COUNT; line++) {
+			if (line < MaterialMenuGeometry.LINE_COUNT
+					&& lineAlpha(line) == lineAlpha(first)) {
+				continue;
 			}
-			// pivot center of canvas
-			pivotX = width / 2;
-			pivotY = height / 2;
-
-			// shorten both ends
-			stopX = width - sidePadding - resolveStrokeModifier(ratio);
-			startX = sidePadding + dip3 * ratio;
-			break;
-		case BURGER_X:
-			if (isMorphingForward()) {
-				// rotate around
-				rotation2 = -X_ROTATION_ANGLE * ratio;
-			} else {
-				// rotate directly
-				rotation2 = X_ROTATION_ANGLE * ratio;
+			final int alpha = lineAlpha(first);
+			if (alpha > 0) {
+				iconPaint.setAlpha(alpha);
+				canvas.drawLines(points, first * 4, (line - first) * 4,
+						iconPaint);
 			}
-			// rotate to required angle
-			rotation = X_BOT_LINE_ANGLE * ratio;
-
-			// pivot left corner of line
-			pivotX = sidePadding + dip4;
-			pivotY = height - topPadding - dip3;
-
-			// shorten one end
-			startX += dip3 * ratio;
-			break;
-		case BURGER_CHECK:
-			// rotate from ARROW angle to CHECK angle
-			rotation = ratio * (CHECK_BOTTOM_ANGLE + ARROW_TOP_LINE_ANGLE);
-
-			// move pivot from BURGER pivot to CHECK pivot
-			pivotX = width / 2 + dip3 * ratio;
-			pivotY = height / 2 - dip3 * ratio;
-
-			// length stays same as BURGER
-			startX += dip8 * ratio;
-			stopX -= resolveStrokeModifier(ratio);
-			break;
-		case BURGER_UP:
-
-			// ע /TOP ϵ -> ҲΪ0
-			// ֹͣʱͼ
-			// rotation = 180 * ratio;
-			// pivotX = width / 2 ;//עתѡ
-			// pivotY = height / 2 ;
-			// rotation2 = UP_BOTTOM_ANGLE * ratio;
-			// //ʵǻȻתȷλ
-			// startX -= dip3 * ratio; //ע start+ stop-
-			// stopX -= (dip8+dip2) * ratio; //ע start+ stop-
-
-			// ע \bottom ʵǻȻתȷλ
-			rotation = 180 * ratio;
-			pivotX = width / 2;// עתѡ
-			pivotY = height / 2;
-			rotation2 = UP_BOTTOM_ANGLE * ratio;
-			// ʵǻȻתȷλ
-			startX -= dip3 * ratio; // ע start+ stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			break;
-		case BURGER_DOWN:
-			// 180
-			// rotation = 180 * (1- ratio);//-30
-			// rotation = 180 * (1- ratio);//-30
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_BOTTOM_ANGLE * ratio; // Ŧ2Ѿߵеˡ
-			startX -= dip3 * ratio; // ע start+ stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			// rotation = (30+180) *ratio;//-30
-			// pivotX = width / 2;//עתѡ
-			// pivotY = ((height*2)/ 3) * ratio;
-			// //ʵǻȻתȷλ
-			// startX = width / 2;
-			// // startY = height / 3;
-			// stopX = width - 60;
-			// stopY = height / 3;
-			break;
-		case ARROW_X:
-			// rotate from ARROW angle to X angle
-			rotation = ARROW_TOP_LINE_ANGLE
-					+ (360 + X_BOT_LINE_ANGLE - ARROW_TOP_LINE_ANGLE) * ratio;
-			rotation2 = -X_ROTATION_ANGLE * ratio;
-
-			// move pivot from ARROW pivot to X pivot
-			pivotX = width / 2 + (sidePadding + dip4 - width / 2) * ratio;
-			pivotY = height / 2 + (height / 2 - topPadding - dip3) * ratio;
-
-			// lengthen both ends
-			stopX -= resolveStrokeModifier(ratio);
-			startX += dip3;
-			break;
-		case ARROW_CHECK:
-			// rotate from ARROW angle to CHECK angle
-			rotation = ARROW_TOP_LINE_ANGLE + ratio * CHECK_BOTTOM_ANGLE;
-
-			// move pivot from ARROW pivot to CHECK pivot
-			pivotX = width / 2 + dip3 * ratio;
-			pivotY = height / 2 - dip3 * ratio;
-
-			// length stays same as ARROW
-			stopX -= resolveStrokeModifier(1);
-			startX += dip3 + (dip4 + dip1) * ratio;
-			break;
-		case ARROW_UP:
-
-			rotation = ARROW_TOP_LINE_ANGLE * (1 - ratio) + 180 * ratio;
-			// pivot center of canvas
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_BOTTOM_ANGLE * ratio;
-
-			// shorten both ends
-			stopX = (width - sidePadding) * (1 - ratio)
-					- resolveStrokeModifier(ratio) * (1 - ratio)
-					+ (stopX - dip8 - dip2) * ratio;
-			startX = sidePadding * (1 - ratio) + dip3 * (1 - ratio)
-					+ (startX - dip3) * ratio;
-			// startX -= dip3 * ratio; //ע start+ stop-
-			// stopX -= (dip8+dip2) * ratio; //ע start+ stop-
-			// startX = (startX-dip3) * ratio; //ע start+ stop-
-			// stopX = (stopX-dip8-dip2) * ratio; //ע start+ stop-
-
-			break;
-		case ARROW_DOWN:
-
-			rotation = ARROW_TOP_LINE_ANGLE * (1 - ratio);
-			// pivot center of canvas
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_BOTTOM_ANGLE * ratio;
-
-			// shorten both ends
-			stopX = (width - sidePadding) * (1 - ratio)
-					- resolveStrokeModifier(ratio) * (1 - ratio)
-					+ (stopX - dip8 - dip2) * ratio;
-			startX = sidePadding * (1 - ratio) + dip3 * (1 - ratio)
-					+ (startX - dip3) * ratio;
-
-			break;
-		case X_CHECK:
-			// rotate from X to CHECK angles
-			rotation2 = -X_ROTATION_ANGLE * (1 - ratio);
-			rotation = X_BOT_LINE_ANGLE
-					+ (CHECK_BOTTOM_ANGLE + ARROW_TOP_LINE_ANGLE - X_BOT_LINE_ANGLE)
-					* ratio;
-
-			// move pivot from X to CHECK
-			pivotX = sidePadding + dip4
-					+ (width / 2 + dip3 - sidePadding - dip4) * ratio;
-			pivotY = height - topPadding - dip3
-					+ (topPadding + height / 2 - height) * ratio;
-
-			// shorten both ends
-			startX += dip8 - (dip4 + dip1) * (1 - ratio);
-			stopX -= resolveStrokeModifier(1 - ratio);
-			break;
-		case X_UP:
-
-			rotation = X_BOT_LINE_ANGLE * (1 - ratio) + 180 * ratio;
-			pivotX = (sidePadding + dip4) * (1 - ratio) + (width / 2) * ratio;// עתѡ
-			pivotY = (height - topPadding - dip3) * (1 - ratio) + (height / 2)
-					* ratio;
-			rotation2 = X_ROTATION_ANGLE * (1 - ratio) + UP_BOTTOM_ANGLE
-					* ratio;
-			// ʵǻȻתȷλ
-			startX += dip3 * (1 - ratio) - dip3 * ratio; // ע start+
-															// stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			break;
-		case X_DOWN:
-
-			rotation = X_BOT_LINE_ANGLE * (1 - ratio);
-			pivotX = (sidePadding + dip4) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (height - topPadding - dip3) * (1 - ratio) + (height / 2)
-					* ratio;
-			rotation2 = X_ROTATION_ANGLE * (1 - ratio) + UP_BOTTOM_ANGLE
-					* ratio; // Ŧ2Ѿߵеˡ
-			startX += dip3 * (1 - ratio) - dip3 * ratio; // ע start+
-															// stop-
-			stopX -= (dip8 + dip2) * ratio; // ע start+ stop-
-
-			break;
-		case CHECK_UP:
-			// ע \bottom ʵǻȻתȷλ
-			// ע /TOP ϵ -> ҲΪ0
-			// ֹͣʱͼ
-
-			// rotate from X to CHECK angles
-			rotation2 = UP_BOTTOM_ANGLE * ratio;
-			rotation = (CHECK_UP_ROTATION) * (1 - ratio) + 180 * ratio;
-
-			// move pivot from X to CHECK
-			pivotX = (CHECK_UP_PIVOTX) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (CHECK_UP_PIVOTY) * (1 - ratio) + (height / 2) * ratio;
-
-			// shorten both ends
-			startX += dip8 * (1 - ratio) - dip3 * ratio;
-			stopX -= resolveStrokeModifier(1 - ratio) * (1 - ratio) + (dip8 + dip2)
-					* ratio;
-
-			// //ע /TOP ϵ -> ҲΪ0
-			// //ֹͣʱͼ
-			// rotation = 180 * ratio;
-			// pivotX = width / 2 ;//עתѡ
-			// pivotY = height / 2 ;
-			// rotation2 = UP_BOTTOM_ANGLE * ratio;
-			// //ʵǻȻתȷλ
-			// startX -= dip3 * ratio; //ע start+ stop-
-			// stopX -= (dip8+dip2) * ratio; //ע start+ stop-
-
-			break;
-		case CHECK_DOWN:
-
-			// rotate from X to CHECK angles
-			rotation2 = UP_BOTTOM_ANGLE * ratio;
-			rotation = (CHECK_UP_ROTATION) * (1 - ratio);// 򵥴ֱĴʽץסһͼε״̬һͼε״̬
-			// + (180 * (1-ratio))*ratio
-
-			// move pivot from X to CHECK
-			pivotX = (CHECK_UP_PIVOTX) * (1 - ratio) + (width / 2) * ratio;
-			pivotY = (CHECK_UP_PIVOTY) * (1 - ratio) + (height / 2) * ratio;
-
-			// shorten both ends
-			startX += dip8 * (1 - ratio) - dip3 * ratio;
-			stopX -= resolveStrokeModifier(1 - ratio) * (1 - ratio) + (dip8 + dip2)
-					* ratio;
-
-			break;
-		case UP_DOWN:
-			// 180
-			// rotation = 180 - 180 * ratio;//-30
-			rotation = 180 * (1 - ratio);// -30
-			pivotX = width / 2;
-			pivotY = height / 2;
-			rotation2 = UP_BOTTOM_ANGLE; // Ŧ2Ѿߵеˡ
-			startX -= dip3; // ע start+ stop-
-			stopX -= (dip8 + dip2); // ע start+ stop-
-
-			// rotation = 30 * ratio;//-30
-			// pivotX = width / 2 ;//עתѡ
-			// pivotY = height / 3 ;
-			// //ʵǻȻתȷλ
-			// startX = width / 2 + dip1;
-			// // startY = height / 3;
-			// stopX = width / 2 + dip1;
-
-			// rotation = -45;
-			// pivotX = 280;
-			// pivotY = 490;
-			// rotation2 = -90;
-			// pivotX2 = 430;
-			// pivotY2 = 510;
-			// startX = 260;
-			// startY = 510;
-			// stopX = 600;
-			// stopY = 510;
-			break;
-		default:
-			break;
+			first = line;
 		}
+		iconPaint.setAlpha(255);
+	}
 
-		canvas.rotate(rotation, pivotX, pivotY);// 135 400 400 -> -44 280 490
-		canvas.rotate(rotation2, pivotX2, pivotY2);// 0 430 510 -> -90 430 510
-		canvas.drawLine(startX, startY, stopX, stopY, iconPaint);// 260 510 520
-																	// 510 -> 3
-																	// 600
+	private int lineAlpha(int line) {
+		return (int) frame[line * MaterialMenuGeometry.PARAM_COUNT
+				+ MaterialMenuGeometry.ALPHA];
 	}
 
-	private boolean isMorphingForward() {
-		return transformationValue <= TRANSFORMATION_MID;
+	private void drawTouchCircle(Canvas canvas, float pressedProgress,
+			int alpha) {
+		circlePaint.setAlpha(alpha);
+		canvas.drawCircle(width / 2, height / 2, pressedProgress, circlePaint);
 	}
 
-	private float resolveStrokeModifier(float ratio) {
-		switch (stroke) {
-		case REGULAR:
-			if (animationState == AnimationState.ARROW_X
-					|| animationState == AnimationState.X_CHECK
-					|| animationState == AnimationState.ARROW_UP
-					|| animationState == AnimationState.ARROW_DOWN) {
-				return dip3 - (dip3 * ratio);
-			}
-			return ratio * dip3;
-		case THIN:
-			if (animationState == AnimationState.ARROW_X
-					|| animationState == AnimationState.X_CHECK
-					|| animationState == AnimationState.ARROW_UP
-					|| animationState == AnimationState.ARROW_DOWN) {
-				return dip3 + diph - (dip3 + diph) * ratio;
-			}
-			return ratio * (dip3 + diph);
-		case EXTRA_THIN:
-			if (animationState == AnimationState.ARROW_X
-					|| animationState == AnimationState.X_CHECK
-					|| animationState == AnimationState.ARROW_UP
-					|| animationState == AnimationState.ARROW_DOWN) {
-				return dip4 - ((dip3 + dip1) * ratio);
-			}
-			return ratio * dip4;
-		}
-		return 0;
+	private void drawLine(Canvas canvas, int line) {
+		final int offset = line * MaterialMenuGeometry.PARAM_COUNT;
+		final float lineY = geometry.getLineY(line);
+
+		canvas.save();
+		iconPaint.setAlpha((int) frame[offset + MaterialMenuGeometry.ALPHA]);
+		canvas.rotate(frame[offset + MaterialMenuGeometry.ROTATION],
+				frame[offset + MaterialMenuGeometry.PIVOT_X],
+				frame[offset + MaterialMenuGeometry.PIVOT_Y]);
+		canvas.rotate(frame[offset + MaterialMenuGeometry.ROTATION2],
+				geometry.getPivotX2(line), geometry.getPivotY2(line));
+		canvas.drawLine(frame[offset + MaterialMenuGeometry.START_X], lineY,
+				frame[offset + MaterialMenuGeometry.STOP_X], lineY, iconPaint);
+		iconPaint.setAlpha(255);
+		canvas.restore();
 	}
 
 	@Override
 	public void setAlpha(int alpha) {
 		iconPaint.setAlpha(alpha);
+		invalidatePictures();
 	}
 
 	@Override
 	public void setColorFilter(ColorFilter cf) {
 		iconPaint.setColorFilter(cf);
+		invalidatePictures();
 	}
 
 	@Override
@@ -1109,38 +687,213 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 		return PixelFormat.TRANSPARENT;
 	}
 
-	/*
-	 * Accessor methods
+	/**
+	 * Hidden drawables do not animate. Running animations jump to their end
+	 * state and release their frame callbacks, new transitions snap to their
+	 * target state.
 	 */
-
-	public void setColor(int color) {
-		iconPaint.setColor(color);
-		circlePaint.setColor(color);
-		invalidateSelf();
+	@Override
+	public boolean setVisible(boolean visible, boolean restart) {
+		final boolean changed = super.setVisible(visible, restart);
+		if (!visible) {
+			suspendAnimations();
+		}
+		return changed;
 	}
 
-	public void setTransformationDuration(int duration) {
-		transformation.setDuration(duration);
+	/**
+	 * @return true if transitions snap to their target state instead of
+	 *         animating
+	 */
+	private boolean isAnimationSkipped() {
+		return !isVisible() || isMotionReduced();
+	}
+
+	private void suspendAnimations() {
+		if (scrubScheduled) {
+			MaterialMenuFrameClock.getInstance().removeCallback(scrubCallback);
+			scrubScheduled = false;
+			applyScrubOffset();
+		}
+		if (transformation == null) {
+			return;
+		}
+		if (transformation.isRunning()) {
+			transformation.end();
+		}
+		if (pressedCircle.isRunning()) {
+			pressedCircle.end();
+		}
+	}
+
+	/*
+	 * Accessor methods
+	 */
+
+	public void setColor(int color) {
+		iconPaint.setColor(color);
+		circlePaint.setColor(color);
+		if (sharedFrameCache) {
+			frameCache = MaterialMenuRegistry.obtainFrameCache(geometry, color);
+		}
+		restingFrames = null;
+		invalidatePictures();
+		invalidateSelf();
+	}
+
+	public void setTransformationDuration(int duration) {
+		transformationDuration = duration;
+		if (transformation != null) {
+			transformation.setDuration(duration);
+		}
 	}
 
 	public void setPressedDuration(int duration) {
-		pressedCircle.setDuration(duration);
+		pressedDuration = duration;
+		if (pressedCircle != null) {
+			pressedCircle.setDuration(duration);
+		}
 	}
 
+	/**
+	 * Set the transformation easing. The interpolator is sampled once into a
+	 * {@link MaterialMenuEasing} table, so it has to be a pure function of its
+	 * input.
+	 */
 	public void setInterpolator(Interpolator interpolator) {
-		transformation.setInterpolator(interpolator);
+		transformationInterpolator = MaterialMenuEasing.of(interpolator);
+		if (transformation != null) {
+			transformation.setInterpolator(transformationInterpolator);
+		}
 	}
 
 	public void setAnimationListener(AnimatorListener listener) {
-		if (animatorListener != null) {
-			transformation.removeListener(animatorListener);
+		animatorListener = listener;
+	}
+
+	/**
+	 * Listener notified about both the transformation and the pressed circle
+	 * animations, used by views hosting the drawable
+	 */
+	void setHostAnimationListener(AnimatorListener listener) {
+		hostListener = listener;
+	}
+
+	/**
+	 * @param stiffness spring constant of the {@link AnimationBackend#SPRING}
+	 *                  backend, higher values settle faster
+	 */
+	public void setSpringStiffness(float stiffness) {
+		if (stiffness <= 0) {
+			throw new IllegalArgumentException("Stiffness must be positive");
+		}
+		if (transformation instanceof MaterialMenuSpringAnimator) {
+			((MaterialMenuSpringAnimator) transformation).setStiffness(stiffness);
 		}
+		springStiffness = stiffness;
+	}
 
-		if (listener != null) {
-			transformation.addListener(listener);
+	/**
+	 * @param dampingRatio damping of the {@link AnimationBackend#SPRING}
+	 *                     backend, 1 is critically damped, lower values
+	 *                     overshoot
+	 */
+	public void setSpringDampingRatio(float dampingRatio) {
+		if (dampingRatio <= 0) {
+			throw new IllegalArgumentException("Damping ratio must be positive");
+		}
+		if (transformation instanceof MaterialMenuSpringAnimator) {
+			((MaterialMenuSpringAnimator) transformation)
+					.setDampingRatio(dampingRatio);
 		}
+		springDampingRatio = dampingRatio;
+	}
 
-		animatorListener = listener;
+	/**
+	 * Switch the animation implementation. Running animations are ended.
+	 *
+	 * @param animationBackend new animation backend
+	 */
+	public void setAnimationBackend(AnimationBackend animationBackend) {
+		if (this.animationBackend == animationBackend) {
+			return;
+		}
+
+		// animators of the new backend are created on the next start
+		if (transformation != null) {
+			stop();
+			pressedCircle.end();
+			transformation = null;
+			pressedCircle = null;
+		}
+
+		this.animationBackend = animationBackend;
+	}
+
+	/**
+	 * Draw frames from a cache of rasterized frames instead of stroking the
+	 * lines on every draw. The cache may be shared between drawables.
+	 *
+	 * @param frameCache cache to use or null to disable caching
+	 */
+	public void setFrameCache(MaterialMenuFrameCache frameCache) {
+		this.frameCache = frameCache;
+		this.sharedFrameCache = false;
+		invalidateSelf();
+	}
+
+	/**
+	 * Draw frames from a cache shared by all drawables with the same density,
+	 * scale, stroke and color
+	 *
+	 * @param enabled true to use the shared cache, false to disable caching
+	 */
+	public void setSharedFrameCacheEnabled(boolean enabled) {
+		setFrameCache(enabled ? MaterialMenuRegistry.obtainFrameCache(
+				geometry, iconPaint.getColor()) : null);
+		this.sharedFrameCache = enabled;
+	}
+
+	public MaterialMenuFrameCache getFrameCache() {
+		return frameCache;
+	}
+
+	/**
+	 * Replay frames recorded into {@link Picture}s instead of stroking the
+	 * lines on every draw. Unlike rasterized frames recorded frames scale
+	 * without loss. A bitmap frame cache takes precedence if both are set.
+	 * <p/>
+	 * Hardware accelerated canvases can not replay pictures before API 23,
+	 * lines are stroked directly there.
+	 *
+	 * @param enabled true to record frames
+	 */
+	public void setPictureCacheEnabled(boolean enabled) {
+		pictureCache = enabled ? new MaterialMenuPictureCache() : null;
+		invalidateSelf();
+	}
+
+	public boolean isPictureCacheEnabled() {
+		return pictureCache != null;
+	}
+
+	private void invalidatePictures() {
+		if (pictureCache != null) {
+			pictureCache.evictAll();
+		}
+	}
+
+	MaterialMenuGeometry getGeometry() {
+		return geometry;
+	}
+
+	int getColor() {
+		return iconPaint.getColor();
+	}
+
+	public void setRenderMode(RenderMode renderMode) {
+		this.renderMode = renderMode;
+		invalidateSelf();
 	}
 
 	public void setNeverDrawTouch(boolean neverDrawTouch) {
@@ -1148,55 +901,101 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 	}
 
 	public void setIconState(IconState iconState) {
-		synchronized (lock) {
-			if (transformationRunning) {
-				transformation.cancel();
-				transformationRunning = false;
-			}
+		if (transformationRunning) {
+			transformation.cancel();
+			transformationRunning = false;
+		}
 
-			if (currentIconState == iconState)
-				return;
+		// a transformation interrupted on its way back still has to settle
+		if (currentIconState == iconState && transformationPath == null
+				&& resting)
+			return;
+		transformationPath = null;
 
-			switch (iconState) {
-			case BURGER:
-				animationState = AnimationState.BURGER_ARROW;
-				transformationValue = TRANSFORMATION_START;
-				break;
-			case ARROW:
-				animationState = AnimationState.BURGER_ARROW;
-				transformationValue = TRANSFORMATION_MID;
-				break;
-			case X:
-				animationState = AnimationState.BURGER_X;
-				transformationValue = TRANSFORMATION_MID;
-				break;
-			case CHECK:
-				animationState = AnimationState.BURGER_CHECK;
-				transformationValue = TRANSFORMATION_MID;
-				break;
-			case UP:
-				animationState = AnimationState.BURGER_UP;
-				transformationValue = TRANSFORMATION_MID;
-				break;
-			case DOWN:
-				animationState = AnimationState.BURGER_DOWN;
-				transformationValue = TRANSFORMATION_MID;
-			}
-			currentIconState = iconState;
-			invalidateSelf();
+		switch (iconState) {
+		case BURGER:
+			animationState = AnimationState.BURGER_ARROW;
+			transformationValue = TRANSFORMATION_START;
+			break;
+		case ARROW:
+			animationState = AnimationState.BURGER_ARROW;
+			transformationValue = TRANSFORMATION_MID;
+			break;
+		case X:
+			animationState = AnimationState.BURGER_X;
+			transformationValue = TRANSFORMATION_MID;
+			break;
+		case CHECK:
+			animationState = AnimationState.BURGER_CHECK;
+			transformationValue = TRANSFORMATION_MID;
+			break;
+		case UP:
+			animationState = AnimationState.BURGER_UP;
+			transformationValue = TRANSFORMATION_MID;
+			break;
+		case DOWN:
+			animationState = AnimationState.BURGER_DOWN;
+			transformationValue = TRANSFORMATION_MID;
+		}
+		currentIconState = iconState;
+		resting = true;
+		publishRenderState();
+		invalidateSelf();
+	}
+
+	/**
+	 * Request an icon state from any thread. Only the latest request posted
+	 * before the main thread gets to it is applied, so a burst of updates
+	 * results in at most one transition.
+	 * <p/>
+	 * Every other state method must be called on the main thread.
+	 *
+	 * @param iconState state to show
+	 * @param animate   true to animate to the state, false to jump to it
+	 */
+	public void postIconState(IconState iconState, boolean animate) {
+		final int request = (iconState.ordinal() + 1) << 1 | (animate ? 1 : 0);
+		if (pendingIconState.getAndSet(request) == NO_PENDING_STATE) {
+			MAIN_HANDLER.post(pendingIconStateDrain);
+		}
+	}
+
+	private void drainPendingIconState() {
+		final int request = pendingIconState.getAndSet(NO_PENDING_STATE);
+		if (request == NO_PENDING_STATE) {
+			return;
+		}
+
+		final IconState iconState = ICON_STATES[(request >> 1) - 1];
+		if ((request & 1) != 0) {
+			animateIconState(iconState, false);
+		} else {
+			setIconState(iconState);
 		}
 	}
 
 	public void animateIconState(IconState state, boolean drawTouch) {
-		synchronized (lock) {
-			if (transformationRunning) {
-				transformation.end();
-				pressedCircle.end();
-			}
-			drawTouchCircle = drawTouch;
+		if (isAnimationSkipped()) {
+			suspendAnimations();
+			setIconState(state);
+			return;
+		}
+
+		drawTouchCircle = drawTouch;
+		if (!transformationRunning) {
 			animatingIconState = state;
 			start();
+			return;
+		}
+
+		// a running transformation continues towards the new state
+		if (state != animatingIconState) {
+			retarget(state);
 		}
+		startPressedCircle();
+
+		publishRenderState();
+		invalidateSelf();
 	}
 
 	public IconState setTransformationOffset(AnimationState animationState,
@@ -1208,6 +1007,7 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 		}
 
 		this.animationState = animationState;
+		this.transformationPath = null;
 
 		final boolean isFirstIcon = offset < TRANSFORMATION_MID
 				|| offset == TRANSFORMATION_END;
@@ -1222,8 +1022,142 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 		return currentIconState;
 	}
 
+	/**
+	 * Variant of {@link #setTransformationOffset(AnimationState, float)} for
+	 * gestures reporting offsets faster than the display refreshes. Only the
+	 * latest offset is applied, once per frame. Finish the gesture with
+	 * {@link #releaseTransformationOffset()}.
+	 */
+	public void scrubTransformationOffset(AnimationState animationState,
+			float offset) {
+		if (offset < TRANSFORMATION_START || offset > TRANSFORMATION_END) {
+			throw new IllegalArgumentException(String.format(
+					"Value must be between %s and %s", TRANSFORMATION_START,
+					TRANSFORMATION_END));
+		}
+
+		if (transformationRunning) {
+			restartingTransformation = true;
+			transformation.cancel();
+			restartingTransformation = false;
+			transformationRunning = false;
+		}
+
+		scrubState = animationState;
+		scrubOffset = offset;
+		if (!scrubScheduled) {
+			scrubScheduled = true;
+			MaterialMenuFrameClock.getInstance().addCallback(scrubCallback);
+		}
+	}
+
+	/**
+	 * End scrubbing and animate to the nearest icon state in the direction
+	 * the gesture was moving, starting with the gesture velocity
+	 *
+	 * @return icon state the icon settles on
+	 */
+	public IconState releaseTransformationOffset() {
+		if (scrubScheduled) {
+			MaterialMenuFrameClock.getInstance().removeCallback(scrubCallback);
+			scrubScheduled = false;
+			applyScrubOffset();
+		}
+		// a paused gesture does not fling
+		final boolean moving = scrubFrameTime >= 0
+				&& SystemClock.uptimeMillis() - scrubFrameTime <= SCRUB_VELOCITY_TIMEOUT;
+		final float velocity = moving ? scrubVelocity : 0;
+		scrubVelocity = 0;
+		scrubFrameTime = -1;
+
+		final float value = transformationValue;
+		final float lower = (float) Math.floor(value);
+		final float upper = (float) Math.ceil(value);
+		final float projected = value + velocity * SCRUB_FLING_LOOKAHEAD;
+		final float target = projected - lower < upper - projected ? lower
+				: upper;
+		final IconState targetState = target == TRANSFORMATION_MID ? animationState
+				.getSecondState() : animationState.getFirstState();
+
+		if (target == value || isAnimationSkipped()) {
+			setIconState(targetState);
+			return targetState;
+		}
+
+		if (transformation == null) {
+			initAnimations();
+		}
+
+		transformationRunning = true;
+		resting = false;
+		transformationPath = null;
+		animatingIconState = targetState;
+		// offsets past the middle belong to the second state
+		transformationStartValue = currentIconState == animationState
+				.getFirstState() ? TRANSFORMATION_START : TRANSFORMATION_MID;
+
+		final float distance = Math.abs(target - value);
+		long duration = (long) (transformationDuration * distance);
+		if (velocity * (target - value) > 0) {
+			// decelerating from the release velocity covers the distance in
+			// twice the time moving at that velocity would
+			duration = Math.min(duration,
+					(long) (2000 * distance / Math.abs(velocity)));
+		}
+		if (transformation instanceof MaterialMenuSpringAnimator) {
+			((MaterialMenuSpringAnimator) transformation)
+					.setStartVelocity(velocity);
+		}
+		final boolean restart = transformation.isRunning();
+		if (restart) {
+			continuingTransformation = true;
+			restartingTransformation = true;
+			transformation.cancel();
+			restartingTransformation = false;
+		}
+		transformation.setDuration(duration);
+		setFloatValues(transformation, value, target);
+		transformation.start();
+		continuingTransformation = false;
+
+		publishRenderState();
+		invalidateSelf();
+		return targetState;
+	}
+
+	private void trackScrubVelocity(long frameTime) {
+		if (scrubFrameTime >= 0 && frameTime > scrubFrameTime
+				&& scrubState == animationState) {
+			final long elapsed = frameTime - scrubFrameTime;
+			final float velocity = (scrubOffset - transformationValue) * 1000f
+					/ elapsed;
+			// movement before a pause says nothing about the current one
+			scrubVelocity = elapsed > SCRUB_VELOCITY_TIMEOUT ? velocity
+					: (scrubVelocity + velocity) / 2;
+		} else {
+			scrubVelocity = 0;
+		}
+		scrubFrameTime = frameTime;
+	}
+
+	private void applyScrubOffset() {
+		final boolean isFirstIcon = scrubOffset < TRANSFORMATION_MID
+				|| scrubOffset == TRANSFORMATION_END;
+		final IconState iconState = isFirstIcon ? scrubState.getFirstState()
+				: scrubState.getSecondState();
+
+		// states only need to be derived again when crossing a state
+		if (scrubState == animationState && transformationPath == null
+				&& iconState == currentIconState) {
+			updateTransformationValue(scrubOffset);
+		} else {
+			setTransformationOffset(scrubState, scrubOffset);
+		}
+	}
+
 	public void setRTLEnabled(boolean rtlEnabled) {
 		this.rtlEnabled = rtlEnabled;
+		publishRenderState();
 		invalidateSelf();
 	}
 
@@ -1234,7 +1168,7 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 	/*
 	 * Animations
 	 */
-	private Property<MaterialMenuDrawable, Float> transformationProperty = new Property<MaterialMenuDrawable, Float>(
+	private static final Property<MaterialMenuDrawable, Float> TRANSFORMATION_PROPERTY = new Property<MaterialMenuDrawable, Float>(
 			Float.class, "transformation") {
 		@Override
 		public Float get(MaterialMenuDrawable object) {
@@ -1243,11 +1177,11 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 		@Override
 		public void set(MaterialMenuDrawable object, Float value) {
-			object.setTransformationValue(value);
+			object.onTransformationFrame(value);
 		}
 	};
 
-	private Property<MaterialMenuDrawable, Float> pressedProgressProperty = new Property<MaterialMenuDrawable, Float>(
+	private static final Property<MaterialMenuDrawable, Float> PRESSED_PROGRESS_PROPERTY = new Property<MaterialMenuDrawable, Float>(
 			Float.class, "pressedProgress") {
 		@Override
 		public Float get(MaterialMenuDrawable object) {
@@ -1256,20 +1190,74 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 		@Override
 		public void set(MaterialMenuDrawable object, Float value) {
-			object.setPressedProgress(value);
+			object.onPressedFrame(value);
 		}
 	};
-	private float CHECK_UP_ROTATION;
-	private float CHECK_UP_PIVOTX;
-	private float CHECK_UP_PIVOTY;
 
 	public Float getTransformationValue() {
 		return transformationValue;
 	}
 
 	public void setTransformationValue(Float value) {
+		updateTransformationValue(value);
+	}
+
+	private void onTransformationFrame(float value) {
+		if (!skipFrame(true)) {
+			updateTransformationValue(value);
+		}
+	}
+
+	private void onPressedFrame(float value) {
+		if (!skipFrame(false)) {
+			updatePressedProgress(value);
+		}
+	}
+
+	/**
+	 * @return true if an animation frame is dropped by the motion policy
+	 */
+	private boolean skipFrame(boolean transformationFrame) {
+		final MotionPolicy policy = motionPolicy;
+		if (policy == MotionPolicy.REDUCED) {
+			// policy changed while animating, end outside of the frame
+			if (!suspendPosted) {
+				suspendPosted = true;
+				MAIN_HANDLER.post(suspendAnimations);
+			}
+			return true;
+		}
+		if (policy != MotionPolicy.CAPPED) {
+			return false;
+		}
+
+		final long now = SystemClock.uptimeMillis();
+		final long last = transformationFrame ? lastTransformationFrame
+				: lastPressedFrame;
+		if (now - last < 1000 / frameRateCap - FRAME_RATE_CAP_TOLERANCE) {
+			return true;
+		}
+		if (transformationFrame) {
+			lastTransformationFrame = now;
+		} else {
+			lastPressedFrame = now;
+		}
+		return false;
+	}
+
+	private void updateTransformationValue(float value) {
 		this.transformationValue = value;
-		invalidateSelf();
+		this.resting = false;
+		publishRenderState();
+
+		if (frameGrid > 0 || dirtyRegionCallback != null) {
+			resolveAnimatedPoints();
+		}
+		if (frameGrid > 0 && !updateDrawnFrame()) {
+			skippedFrameCount++;
+			return;
+		}
+		invalidateAnimatedBounds();
 	}
 
 	public Float getPressedProgress() {
@@ -1277,200 +1265,423 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 	}
 
 	public void setPressedProgress(Float value) {
+		updatePressedProgress(value);
+	}
+
+	private void updatePressedProgress(float value) {
 		this.pressedProgressValue = value;
-		circlePaint.setAlpha((int) (DEFAULT_CIRCLE_ALPHA * (1 - value
-				/ (circleRadius * 1.22f))));
-		invalidateSelf();
+		publishPressState();
+		if (dirtyRegionCallback != null) {
+			resolveAnimatedPoints();
+		}
+		invalidateAnimatedBounds();
 	}
 
-	private void initAnimations(int transformDuration, int pressedDuration) {
-		transformation = ObjectAnimator
-				.ofFloat(this, transformationProperty, 0);
-		transformation.setInterpolator(new DecelerateInterpolator(3));
-		transformation.setDuration(transformDuration);
+	private void publishRenderState() {
+		renderState = (long) Float.floatToRawIntBits(transformationValue) << 32
+				| (resting ? RESTING_BIT : 0)
+				| (drawTouchCircle ? TOUCH_BIT : 0)
+				| (rtlEnabled ? RTL_BIT : 0)
+				| (long) currentIconState.ordinal() << ICON_STATE_SHIFT
+				| animationState.ordinal();
+	}
+
+	private void publishPressState() {
+		final int alpha = (int) (DEFAULT_CIRCLE_ALPHA * (1 - pressedProgressValue
+				/ (circleRadius * 1.22f)));
+		pressState = (long) (alpha & 0xff) << 32
+				| Float.floatToRawIntBits(pressedProgressValue) & 0xffffffffL;
+	}
+
+	/*
+	 * Invalidation
+	 */
+
+	void setDirtyRegionCallback(DirtyRegionCallback callback) {
+		this.dirtyRegionCallback = callback;
+		this.animatedBoundsValid = false;
+	}
+
+	/**
+	 * Animation frames whose line end points and alphas match the previously
+	 * drawn frame on a grid of given subdivisions per pixel are not
+	 * invalidated
+	 *
+	 * @param subdivisions grid subdivisions per pixel or 0 to invalidate
+	 *                     every frame
+	 */
+	public void setFrameGrid(int subdivisions) {
+		if (subdivisions < 0) {
+			throw new IllegalArgumentException("Subdivisions must not be negative");
+		}
+		this.frameGrid = subdivisions;
+		this.drawnFrameValid = false;
+	}
+
+	/**
+	 * @return number of animation frames not invalidated because they did
+	 *         not change the drawn output
+	 */
+	public int getSkippedFrameCount() {
+		return skippedFrameCount;
+	}
+
+	@Override
+	public void invalidateSelf() {
+		// whatever is drawn next is no longer described by animated frames
+		animatedBoundsValid = false;
+		drawnFrameValid = false;
+		super.invalidateSelf();
+	}
+
+	private void resolveAnimatedPoints() {
+		resolveCurrentFrame(dirtyFrame);
+		geometry.resolvePoints(dirtyFrame, rtlEnabled, dirtyPoints);
+	}
+
+	private void resolveCurrentFrame(float[] out) {
+		final TransformationPath transformationPath = this.transformationPath;
+		if (transformationPath != null) {
+			transformationPath.resolveFrame(geometry, transformationValue, out);
+		} else {
+			final float ratio = transformationValue <= 1 ? transformationValue
+					: 2 - transformationValue;
+			geometry.resolveFrame(animationState, ratio,
+					transformationValue <= 1, out);
+		}
+	}
+
+	/**
+	 * Quantize resolved animated points and alphas into the drawn frame
+	 *
+	 * @return true if the quantized frame differs from the drawn one
+	 */
+	private boolean updateDrawnFrame() {
+		boolean changed = !drawnFrameValid;
+		for (int i = 0; i < MaterialMenuGeometry.POINTS_SIZE; i++) {
+			final int value = Math.round(dirtyPoints[i] * frameGrid);
+			changed |= drawnFrame[i] != value;
+			drawnFrame[i] = value;
+		}
+		for (int line = 0; line < MaterialMenuGeometry.LINE_COUNT; line++) {
+			final int value = (int) dirtyFrame[line
+					* MaterialMenuGeometry.PARAM_COUNT
+					+ MaterialMenuGeometry.ALPHA];
+			final int index = MaterialMenuGeometry.POINTS_SIZE + line;
+			changed |= drawnFrame[index] != value;
+			drawnFrame[index] = value;
+		}
+		drawnFrameValid = true;
+		return changed;
+	}
+
+	/**
+	 * Invalidate the union of the areas covered by the previous and the
+	 * current animation frame, falling back to the whole drawable when the
+	 * previous frame is unknown. Expects resolved animated points whenever a
+	 * dirty region callback is set.
+	 */
+	private void invalidateAnimatedBounds() {
+		if (dirtyRegionCallback == null || !animatedBoundsValid) {
+			final boolean frameValid = drawnFrameValid;
+			invalidateSelf();
+			drawnFrameValid = frameValid;
+			if (dirtyRegionCallback != null) {
+				resolveAnimatedBounds(animatedBounds);
+				animatedBoundsValid = true;
+			}
+			return;
+		}
+
+		resolveAnimatedBounds(dirtyBounds);
+		final int left = dirtyBounds.left;
+		final int top = dirtyBounds.top;
+		final int right = dirtyBounds.right;
+		final int bottom = dirtyBounds.bottom;
+		dirtyBounds.union(animatedBounds);
+		animatedBounds.set(left, top, right, bottom);
+
+		dirtyRegionCallback.invalidateDrawable(this, dirtyBounds);
+	}
+
+	private void resolveAnimatedBounds(Rect out) {
+		float left = dirtyPoints[0];
+		float top = dirtyPoints[1];
+		float right = left;
+		float bottom = top;
+		for (int i = 2; i < MaterialMenuGeometry.POINTS_SIZE; i += 2) {
+			left = Math.min(left, dirtyPoints[i]);
+			top = Math.min(top, dirtyPoints[i + 1]);
+			right = Math.max(right, dirtyPoints[i]);
+			bottom = Math.max(bottom, dirtyPoints[i + 1]);
+		}
+
+		// covers caps and antialiasing of the stroke in any direction
+		final float inset = (float) Math.ceil(geometry.getStrokeWidth());
+		out.set((int) Math.floor(left - inset), (int) Math.floor(top - inset),
+				(int) Math.ceil(right + inset), (int) Math.ceil(bottom + inset));
+
+		if (drawTouchCircle && pressedProgressValue > 0) {
+			final int radius = (int) Math.ceil(pressedProgressValue) + 1;
+			out.union(width / 2 - radius, height / 2 - radius, width / 2
+					+ radius, height / 2 + radius);
+		}
+	}
+
+	/**
+	 * Animators are created on the first start, most icons never animate
+	 */
+	private void initAnimations() {
+		transformation = createAnimator(TRANSFORMATION_PROPERTY,
+				new MaterialMenuFrameAnimator.Target() {
+					@Override
+					public void onAnimationUpdate(float value) {
+						onTransformationFrame(value);
+					}
+				});
+		transformation.setInterpolator(transformationInterpolator);
+		transformation.setDuration(transformationDuration);
 		transformation.addListener(new AnimatorListenerAdapter() {
 			@Override
 			public void onAnimationEnd(Animator animation) {
+				if (restartingTransformation) {
+					return;
+				}
 				transformationRunning = false;
 				setIconState(animatingIconState);
 			}
 		});
-
-		pressedCircle = ObjectAnimator.ofFloat(this, pressedProgressProperty,
-				0, 0);
+		transformation.addListener(new ListenerRelay(true));
+
+		pressedCircle = createAnimator(PRESSED_PROGRESS_PROPERTY,
+				new MaterialMenuFrameAnimator.Target() {
+					@Override
+					public void onAnimationUpdate(float value) {
+						onPressedFrame(value);
+					}
+				});
 		pressedCircle.setDuration(pressedDuration);
-		pressedCircle.setInterpolator(new DecelerateInterpolator());
+		pressedCircle.setInterpolator(MaterialMenuEasing.DECELERATE_QUAD);
 		pressedCircle.addListener(new AnimatorListenerAdapter() {
 			@Override
 			public void onAnimationEnd(Animator animation) {
 				pressedProgressValue = 0;
+				publishPressState();
+				// last frame may have been dropped by the motion policy
+				invalidateSelf();
 			}
 
 			@Override
 			public void onAnimationCancel(Animator animation) {
 				pressedProgressValue = 0;
+				publishPressState();
 			}
 		});
-
-		initUpDown();
-
+		pressedCircle.addListener(new ListenerRelay(false));
 	}
 
-	// ʼߺͽǶ
-	private void initUpDown() {
-		CHECK_UP_ROTATION = X_BOT_LINE_ANGLE + CHECK_BOTTOM_ANGLE
-				+ ARROW_TOP_LINE_ANGLE - X_BOT_LINE_ANGLE;
-		CHECK_UP_PIVOTX = sidePadding + dip4 + width / 2 + dip3 - sidePadding
-				- dip4;
-		CHECK_UP_PIVOTY = height - topPadding - dip3 + topPadding + height / 2
-				- height;
+	private Animator createAnimator(
+			Property<MaterialMenuDrawable, Float> property,
+			MaterialMenuFrameAnimator.Target target) {
+		if (animationBackend == AnimationBackend.SPRING
+				&& property == TRANSFORMATION_PROPERTY) {
+			final MaterialMenuSpringAnimator spring = new MaterialMenuSpringAnimator(target);
+			spring.setStiffness(springStiffness);
+			spring.setDampingRatio(springDampingRatio);
+			// a whole transformation moves lines by about the icon width
+			spring.setRestThreshold(0.25f / width);
+			return spring;
+		}
+		if (animationBackend != AnimationBackend.OBJECT_ANIMATOR) {
+			return new MaterialMenuAnimator(target);
+		}
+		return ObjectAnimator.ofFloat(this, property, 0, 0);
+	}
 
+	private static void setFloatValues(Animator animator, float start,
+			float end) {
+		if (animator instanceof MaterialMenuFrameAnimator) {
+			((MaterialMenuFrameAnimator) animator).setFloatValues(start, end);
+		} else {
+			((ObjectAnimator) animator).setFloatValues(start, end);
+		}
 	}
 
 	private boolean resolveTransformation() {
-		boolean isCurrentBurger = currentIconState == IconState.BURGER;
-		boolean isCurrentArrow = currentIconState == IconState.ARROW;
-		boolean isCurrentX = currentIconState == IconState.X;
-		boolean isCurrentCheck = currentIconState == IconState.CHECK;
-		boolean isCurrentUp = currentIconState == IconState.UP;
-		boolean isCurrentDown = currentIconState == IconState.DOWN;
-		boolean isAnimatingBurger = animatingIconState == IconState.BURGER;
-		boolean isAnimatingArrow = animatingIconState == IconState.ARROW;
-		boolean isAnimatingX = animatingIconState == IconState.X;
-		boolean isAnimatingCheck = animatingIconState == IconState.CHECK;
-		boolean isAnimatingUp = animatingIconState == IconState.UP;
-		boolean isAnimatingDown = animatingIconState == IconState.DOWN;
-
-		if ((isCurrentBurger && isAnimatingArrow)
-				|| (isCurrentArrow && isAnimatingBurger)) {
-			animationState = AnimationState.BURGER_ARROW;
-			return isCurrentBurger;
+		final AnimationState state = AnimationState.between(currentIconState,
+				animatingIconState);
+		if (state == null) {
+			throw new IllegalStateException(String.format(
+					"Animating from %s to %s is not supported",
+					currentIconState, animatingIconState));
 		}
+		animationState = state;
+		return AnimationState.isForward(currentIconState, animatingIconState);
+	}
 
-		if ((isCurrentBurger && isAnimatingX)
-				|| (isCurrentX && isAnimatingBurger)) {
-			animationState = AnimationState.BURGER_X;
-			return isCurrentBurger;
-		}
+	@Override
+	public void start() {
+		if (transformationRunning)
+			return;
 
-		if ((isCurrentBurger && isAnimatingCheck)
-				|| (isCurrentCheck && isAnimatingBurger)) {
-			animationState = AnimationState.BURGER_CHECK;
-			return isCurrentBurger;
+		if (isAnimationSkipped()) {
+			if (animatingIconState != null) {
+				setIconState(animatingIconState);
+			}
+			return;
 		}
 
-		if ((isCurrentBurger && isAnimatingUp)
-				|| (isCurrentUp && isAnimatingBurger)) {
-			animationState = AnimationState.BURGER_UP;
-			return isCurrentBurger;
+		if (transformation == null) {
+			initAnimations();
 		}
 
-		if ((isCurrentBurger && isAnimatingDown)
-				|| (isCurrentDown && isAnimatingBurger)) {
-			animationState = AnimationState.BURGER_DOWN;
-			return isCurrentBurger;
-		}
+		if (animatingIconState != null
+				&& animatingIconState != currentIconState) {
+			transformationRunning = true;
+			resting = false;
+			transformationPath = null;
 
-		if ((isCurrentArrow && isAnimatingX)
-				|| (isCurrentX && isAnimatingArrow)) {
-			animationState = AnimationState.ARROW_X;
-			return isCurrentArrow;
+			final boolean direction = resolveTransformation();
+			transformationStartValue = direction ? TRANSFORMATION_START
+					: TRANSFORMATION_MID;
+			transformation.setDuration(transformationDuration);
+			setFloatValues(transformation, transformationStartValue,
+					direction ? TRANSFORMATION_MID : TRANSFORMATION_END);
+			transformation.start();
 		}
 
-		if ((isCurrentArrow && isAnimatingCheck)
-				|| (isCurrentCheck && isAnimatingArrow)) {
-			animationState = AnimationState.ARROW_CHECK;
-			return isCurrentArrow;
-		}
+		startPressedCircle();
 
-		if ((isCurrentArrow && isAnimatingUp)
-				|| (isCurrentUp && isAnimatingArrow)) {
-			animationState = AnimationState.ARROW_UP;
-			return isCurrentArrow;
-		}
+		publishRenderState();
+		invalidateSelf();
+	}
 
-		if ((isCurrentArrow && isAnimatingDown)
-				|| (isCurrentDown && isAnimatingArrow)) {
-			animationState = AnimationState.ARROW_DOWN;
-			return isCurrentArrow;
+	private void startPressedCircle() {
+		final boolean start = drawTouchCircle && !neverDrawTouch;
+		if (pressedCircle.isRunning()) {
+			// a circle replaced by a new one keeps the host animating
+			restartingPressedCircle = start;
+			pressedCircle.cancel();
 		}
-
-		if ((isCurrentX && isAnimatingCheck)
-				|| (isCurrentCheck && isAnimatingX)) {
-			animationState = AnimationState.X_CHECK;
-			return isCurrentX;
+		if (start) {
+			setFloatValues(pressedCircle, 0, circleRadius * 1.22f);
+			pressedCircle.start();
 		}
+		restartingPressedCircle = false;
+	}
 
-		if ((isCurrentX && isAnimatingUp) || (isCurrentUp && isAnimatingX)) {
-			animationState = AnimationState.X_UP;
-			return isCurrentX;
+	/**
+	 * Redirect the running transformation from the currently drawn frame to
+	 * a new icon state, reusing the same animator
+	 */
+	private void retarget(IconState iconState) {
+		if (transformation instanceof MaterialMenuSpringAnimator
+				&& transformationPath == null && iconState == currentIconState) {
+			// the spring turns around on the same transformation
+			((MaterialMenuSpringAnimator) transformation)
+					.animateTo(transformationStartValue);
+			animatingIconState = iconState;
+			return;
 		}
 
-		if ((isCurrentX && isAnimatingDown) || (isCurrentDown && isAnimatingX)) {
-			animationState = AnimationState.X_DOWN;
-			return isCurrentX;
-		}
+		final float progress = transformationPath != null
+				|| transformationValue <= TRANSFORMATION_MID ? transformationValue
+				: transformationValue - TRANSFORMATION_MID;
+		// heading back only has to cover the distance travelled so far
+		final float scale = iconState == currentIconState ? Math.max(progress,
+				MIN_RETARGET_SCALE) : 1;
 
-		if ((isCurrentCheck && isAnimatingUp)
-				|| (isCurrentUp && isAnimatingCheck)) {
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isCurrentCheck:"+isCurrentCheck);
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isAnimatingUp:"+isAnimatingUp);
-			animationState = AnimationState.CHECK_UP;
-			return isCurrentCheck;
-		}
+		startPath(new IconState[] { iconState }, 1, true,
+				(long) (transformationDuration * scale));
+	}
 
-		if ((isCurrentCheck && isAnimatingDown)
-				|| (isCurrentDown && isAnimatingCheck)) {
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isCurrentCheck:"+isCurrentCheck);
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isAnimatingDown:"+isAnimatingDown);
-			animationState = AnimationState.CHECK_DOWN;
-			return isCurrentCheck;
+	/**
+	 * Animate through a path of icon states as a single transformation. The
+	 * interpolator eases the whole path, so there is no slowdown at the
+	 * states in between and the animation listener is notified once.
+	 * <p/>
+	 * Every icon state can be reached from any other one directly, so a
+	 * single state is equivalent to {@link #animateIconState(IconState, boolean)}.
+	 * A running transformation continues from its current frame.
+	 *
+	 * @param path icon states to pass through, ending with the target state
+	 */
+	public void animateIconStates(IconState... path) {
+		if (path.length == 0) {
+			throw new IllegalArgumentException("Path must contain at least one state");
 		}
-
-		if ((isCurrentUp && isAnimatingDown)
-				|| (isCurrentDown && isAnimatingUp)) {
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isCurrentUp:"+isCurrentUp);
-			// Log.i("LHF",
-			// "isCurrentUp.resolveTransformation.isAnimatingDown:"+isAnimatingDown);
-			animationState = AnimationState.UP_DOWN;
-			return isCurrentUp;
+		if (isAnimationSkipped()) {
+			suspendAnimations();
+			setIconState(path[path.length - 1]);
+			return;
+		}
+		if (transformation == null) {
+			initAnimations();
 		}
 
-		throw new IllegalStateException(String.format(
-				"Animating from %s to %s is not supported", currentIconState,
-				animatingIconState));
-	}
-
-	@Override
-	public void start() {
-		if (transformationRunning)
+		final boolean fromFrame = transformationRunning;
+		final IconState[] hops = new IconState[path.length];
+		int length = 0;
+		IconState previous = fromFrame ? null : currentIconState;
+		for (IconState iconState : path) {
+			if (iconState != previous) {
+				hops[length++] = iconState;
+			}
+			previous = iconState;
+		}
+		if (length == 0) {
 			return;
+		}
 
-		if (animatingIconState != null
-				&& animatingIconState != currentIconState) {
-			transformationRunning = true;
+		startPath(hops, length, fromFrame, transformationDuration * length);
+		publishRenderState();
+		invalidateSelf();
+	}
 
-			final boolean direction = resolveTransformation();
-			transformation.setFloatValues(direction ? TRANSFORMATION_START
-					: TRANSFORMATION_MID, direction ? TRANSFORMATION_MID
-					: TRANSFORMATION_END);
-			transformation.start();
+	private void startPath(IconState[] path, int length, boolean fromFrame,
+			long duration) {
+		if (fromFrame) {
+			resolveCurrentFrame(pathFrame);
 		}
-
-		if (pressedCircle.isRunning()) {
-			pressedCircle.cancel();
+		if (transformation instanceof MaterialMenuSpringAnimator) {
+			// carry the speed of the interrupted hop over to the new hops
+			final MaterialMenuSpringAnimator spring = (MaterialMenuSpringAnimator) transformation;
+			final float hopVelocity = Math.abs(spring.getVelocity())
+					* (transformationPath != null ? transformationPath.getHops() : 1);
+			spring.setStartVelocity(fromFrame ? hopVelocity / length : 0);
 		}
-		if (drawTouchCircle && !neverDrawTouch) {
-			pressedCircle.setFloatValues(0, circleRadius * 1.22f);
-			pressedCircle.start();
+		if (transformationRunning) {
+			continuingTransformation = true;
+			restartingTransformation = true;
+			transformation.cancel();
+			restartingTransformation = false;
 		}
 
-		invalidateSelf();
+		final AnimationState[] states = new AnimationState[length];
+		final boolean[] forward = new boolean[length];
+		float[] fromTransition = null;
+		IconState from = currentIconState;
+		for (int hop = 0; hop < length; hop++) {
+			if (hop == 0 && fromFrame) {
+				fromTransition = new float[MaterialMenuGeometry.TRANSITION_SIZE];
+				geometry.resolveTransition(pathFrame, path[0], fromTransition);
+			} else {
+				states[hop] = AnimationState.between(from, path[hop]);
+				forward[hop] = AnimationState.isForward(from, path[hop]);
+			}
+			from = path[hop];
+		}
+
+		transformationPath = new TransformationPath(states, forward,
+				fromTransition);
+		animatingIconState = path[length - 1];
+		transformationRunning = true;
+		resting = false;
+
+		setFloatValues(transformation, TRANSFORMATION_START, TRANSFORMATION_MID);
+		transformation.setDuration(duration);
+		transformation.start();
+		continuingTransformation = false;
 	}
 
 	@Override
@@ -1506,25 +1717,153 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 
 	@Override
 	public Drawable mutate() {
-		materialMenuState = new MaterialMenuState();
+		materialMenuState = new MaterialMenuState(geometry);
 		return this;
 	}
 
+	/**
+	 * Passes animator events on to the animation and host listeners, leaving
+	 * out the cancel and start of internal restarts. The animation listener
+	 * only hears about the transformation.
+	 */
+	private final class ListenerRelay implements AnimatorListener {
+		private final boolean transformationEvents;
+
+		ListenerRelay(boolean transformationEvents) {
+			this.transformationEvents = transformationEvents;
+		}
+
+		private boolean isRestarting() {
+			return transformationEvents ? continuingTransformation
+					: restartingPressedCircle;
+		}
+
+		private AnimatorListener getAnimationListener() {
+			return transformationEvents ? animatorListener : null;
+		}
+
+		@Override
+		public void onAnimationStart(Animator animation) {
+			if (isRestarting()) {
+				return;
+			}
+			final AnimatorListener listener = getAnimationListener();
+			if (listener != null) {
+				listener.onAnimationStart(animation);
+			}
+			if (hostListener != null) {
+				hostListener.onAnimationStart(animation);
+			}
+		}
+
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			if (isRestarting()) {
+				return;
+			}
+			final AnimatorListener listener = getAnimationListener();
+			if (listener != null) {
+				listener.onAnimationEnd(animation);
+			}
+			if (hostListener != null) {
+				hostListener.onAnimationEnd(animation);
+			}
+		}
+
+		@Override
+		public void onAnimationCancel(Animator animation) {
+			if (isRestarting()) {
+				return;
+			}
+			final AnimatorListener listener = getAnimationListener();
+			if (listener != null) {
+				listener.onAnimationCancel(animation);
+			}
+			if (hostListener != null) {
+				hostListener.onAnimationCancel(animation);
+			}
+		}
+
+		@Override
+		public void onAnimationRepeat(Animator animation) {
+			final AnimatorListener listener = getAnimationListener();
+			if (listener != null) {
+				listener.onAnimationRepeat(animation);
+			}
+			if (hostListener != null) {
+				hostListener.onAnimationRepeat(animation);
+			}
+		}
+	}
+
+	/**
+	 * Hops of a path played as one transformation. The first hop starts from
+	 * an interrupted frame when {@code fromTransition} is set. Never modified
+	 * once published.
+	 */
+	private static final class TransformationPath {
+		private final AnimationState[] states;
+		private final boolean[] forward;
+		private final float[] fromTransition;
+
+		TransformationPath(AnimationState[] states, boolean[] forward,
+				float[] fromTransition) {
+			this.states = states;
+			this.forward = forward;
+			this.fromTransition = fromTransition;
+		}
+
+		int getHops() {
+			return states.length;
+		}
+
+		/**
+		 * @param value progress along the whole path, between 0 and 1
+		 */
+		void resolveFrame(MaterialMenuGeometry geometry, float value,
+				float[] out) {
+			final int hops = states.length;
+			final float position = value * hops;
+			final int hop = Math.min((int) position, hops - 1);
+			final float ratio = position - hop;
+
+			if (hop == 0 && fromTransition != null) {
+				MaterialMenuGeometry.resolveFrame(fromTransition, ratio, out);
+			} else {
+				final boolean forward = this.forward[hop];
+				geometry.resolveFrame(states[hop], forward ? ratio : 1 - ratio,
+						forward, out);
+			}
+		}
+	}
+
+	/**
+	 * Holds the immutable geometry shared by every drawable created from it,
+	 * the remaining configuration is copied from the owning drawable
+	 */
 	private final class MaterialMenuState extends ConstantState {
+		private final MaterialMenuGeometry geometry;
 		private int changingConfigurations;
 
-		private MaterialMenuState() {
+		private MaterialMenuState(MaterialMenuGeometry geometry) {
+			this.geometry = geometry;
 		}
 
 		@Override
 		public Drawable newDrawable() {
-			MaterialMenuDrawable drawable = new MaterialMenuDrawable(
-					circlePaint.getColor(), stroke,
-					transformation.getDuration(), pressedCircle.getDuration(),
-					width, height, iconWidth, circleRadius, strokeWidth, dip1);
+			MaterialMenuDrawable drawable = new MaterialMenuDrawable(geometry,
+					circlePaint.getColor(), transformationDuration,
+					pressedDuration, animationBackend);
 			drawable.setIconState(animatingIconState != null ? animatingIconState
 					: currentIconState);
-			drawable.setRTLEnabled(rtlEnabled);
+			drawable.rtlEnabled = rtlEnabled;
+			drawable.publishRenderState();
+			drawable.frameCache = frameCache;
+			drawable.sharedFrameCache = sharedFrameCache;
+			drawable.restingFrames = restingFrames;
+			if (pictureCache != null) {
+				drawable.pictureCache = new MaterialMenuPictureCache();
+			}
 			return drawable;
 		}
 
@@ -1534,6 +1873,101 @@ public class MaterialMenuDrawable extends Drawable implements Animatable {
 		}
 	}
 
+	/**
+	 * Set the motion policy of every drawable, {@link MotionPolicy#FULL} by
+	 * default. Takes effect on the next animation frame, animations running
+	 * when switching to {@link MotionPolicy#REDUCED} jump to their end state.
+	 */
+	public static void setMotionPolicy(MotionPolicy policy) {
+		motionPolicy = policy;
+	}
+
+	public static MotionPolicy getMotionPolicy() {
+		return motionPolicy;
+	}
+
+	/**
+	 * @param framesPerSecond frame rate animations are limited to under
+	 *                        {@link MotionPolicy#CAPPED}
+	 */
+	public static void setFrameRateCap(int framesPerSecond) {
+		if (framesPerSecond <= 0) {
+			throw new IllegalArgumentException("Frame rate cap must be positive");
+		}
+		frameRateCap = framesPerSecond;
+	}
+
+	/**
+	 * @return true if animations are disabled in the developer options or
+	 *         battery saver is on
+	 */
+	public static boolean isSystemMotionReduced(Context context) {
+		return getAnimatorDurationScale(context) == 0
+				|| isPowerSaveMode(context);
+	}
+
+	/**
+	 * Called when a transition starts, never from animation frames
+	 */
+	private static boolean isMotionReduced() {
+		final MotionPolicy policy = motionPolicy;
+		if (policy != MotionPolicy.SYSTEM) {
+			return policy == MotionPolicy.REDUCED;
+		}
+		if (applicationContext == null) {
+			return false;
+		}
+
+		final long now = SystemClock.uptimeMillis();
+		if (now - systemMotionCheckTime >= SYSTEM_MOTION_POLL_INTERVAL) {
+			systemMotionReduced = isSystemMotionReduced(applicationContext);
+			systemMotionCheckTime = now;
+		}
+		return systemMotionReduced;
+	}
+
+	/*
+	 * Settings.Global (17) and PowerManager.isPowerSaveMode (21) are newer
+	 * than the build target, reach them through reflection
+	 */
+
+	private static float getAnimatorDurationScale(Context context) {
+		final ContentResolver resolver = context.getContentResolver();
+		if (Build.VERSION.SDK_INT >= 17) {
+			try {
+				final Method getFloat = Class.forName(
+						"android.provider.Settings$Global").getMethod(
+						"getFloat", ContentResolver.class, String.class,
+						float.class);
+				return (Float) getFloat.invoke(null, resolver,
+						ANIMATOR_DURATION_SCALE, 1f);
+			} catch (Exception e) {
+				return 1;
+			}
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return Settings.System.getFloat(resolver, ANIMATOR_DURATION_SCALE, 1);
+		}
+		return 1;
+	}
+
+	private static boolean isPowerSaveMode(Context context) {
+		if (Build.VERSION.SDK_INT < 21) {
+			return false;
+		}
+		final PowerManager powerManager = (PowerManager) context
+				.getSystemService(Context.POWER_SERVICE);
+		if (powerManager == null) {
+			return false;
+		}
+		try {
+			return (Boolean) PowerManager.class.getMethod("isPowerSaveMode")
+					.invoke(powerManager);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
 	static float dpToPx(Resources resources, float dp) {
 		return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
 				resources.getDisplayMetrics());
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Interpolator backed by a table of precomputed samples.
+ * <p/>
+ * Any {@link Interpolator} or cubic bezier curve is sampled once, evaluating
+ * a frame then costs two array reads and a linear interpolation. Tables are
+ * cached, so obtaining the same easing twice shares one table.
+ */
+public final class MaterialMenuEasing implements Interpolator {
+
+	public static final int DEFAULT_SAMPLES = 256;
+
+	// caches are initialized before the predefined curves using them
+	private static final Map<Interpolator, MaterialMenuEasing> SAMPLED = new WeakHashMap<Interpolator, MaterialMenuEasing>();
+	private static final Map<BezierKey, MaterialMenuEasing> BEZIERS = new HashMap<BezierKey, MaterialMenuEasing>();
+
+	/**
+	 * Material standard curve, for elements moving between on-screen
+	 * positions
+	 */
+	public static final MaterialMenuEasing STANDARD = cubicBezier(0.4f, 0f, 0.2f, 1f);
+	/**
+	 * Material deceleration curve, for elements entering the screen
+	 */
+	public static final MaterialMenuEasing DECELERATE = cubicBezier(0f, 0f, 0.2f, 1f);
+	/**
+	 * Material acceleration curve, for elements leaving the screen
+	 */
+	public static final MaterialMenuEasing ACCELERATE = cubicBezier(0.4f, 0f, 1f, 1f);
+	/**
+	 * Material sharp curve, for elements that may return to the screen
+	 */
+	public static final MaterialMenuEasing SHARP = cubicBezier(0.4f, 0f, 0.6f, 1f);
+
+	/**
+	 * Constant speed, used in place of a missing interpolator
+	 */
+	static final MaterialMenuEasing LINEAR = of(new LinearInterpolator());
+	/**
+	 * {@link DecelerateInterpolator} with factor 3, {@code 1 - (1 - x)^6}, the
+	 * default transformation easing
+	 */
+	static final MaterialMenuEasing DECELERATE_SEXTIC = of(new DecelerateInterpolator(3));
+	/**
+	 * {@link DecelerateInterpolator} with factor 1, the default pressed circle
+	 * easing
+	 */
+	static final MaterialMenuEasing DECELERATE_QUAD = of(new DecelerateInterpolator());
+
+	private final float[] samples;
+
+	private MaterialMenuEasing(float[] samples) {
+		this.samples = samples;
+	}
+
+	/**
+	 * @return easing sampled from given interpolator, the interpolator itself
+	 *         if it already is one, linear easing for {@code null}
+	 */
+	public static MaterialMenuEasing of(Interpolator interpolator) {
+		if (interpolator == null) {
+			return LINEAR;
+		}
+		if (interpolator instanceof MaterialMenuEasing) {
+			return (MaterialMenuEasing) interpolator;
+		}
+
+		synchronized (SAMPLED) {
+			MaterialMenuEasing easing = SAMPLED.get(interpolator);
+			if (easing == null) {
+				final float[] samples = new float[DEFAULT_SAMPLES];
+				for (int i = 0; i < DEFAULT_SAMPLES; i++) {
+					samples[i] = interpolator.getInterpolation((float) i
+							/ (DEFAULT_SAMPLES - 1));
+				}
+				easing = new MaterialMenuEasing(samples);
+				SAMPLED.put(interpolator, easing);
+			}
+			return easing;
+		}
+	}
+
+	/**
+	 * Easing following a cubic bezier curve from {@code (0, 0)} to
+	 * {@code (1, 1)}, like CSS {@code cubic-bezier()}
+	 *
+	 * @param x1 x of the first control point, between 0 and 1
+	 * @param y1 y of the first control point
+	 * @param x2 x of the second control point, between 0 and 1
+	 * @param y2 y of the second control point
+	 */
+	public static MaterialMenuEasing cubicBezier(float x1, float y1, float x2,
+			float y2) {
+		if (x1 < 0 || x1 > 1 || x2 < 0 || x2 > 1) {
+			throw new IllegalArgumentException("Control point x values must be between 0 and 1");
+		}
+
+		final BezierKey key = new BezierKey(x1, y1, x2, y2);
+		synchronized (BEZIERS) {
+			MaterialMenuEasing easing = BEZIERS.get(key);
+			if (easing == null) {
+				easing = new MaterialMenuEasing(sampleBezier(x1, y1, x2, y2));
+				BEZIERS.put(key, easing);
+			}
+			return easing;
+		}
+	}
+
+	@Override
+	public float getInterpolation(float input) {
+		if (input <= 0) {
+			return samples[0];
+		}
+		final int last = samples.length - 1;
+		if (input >= 1) {
+			return samples[last];
+		}
+
+		final float position = input * last;
+		final int index = (int) position;
+		final float start = samples[index];
+		return start + (samples[index + 1] - start) * (position - index);
+	}
+
+	private static float[] sampleBezier(float x1, float y1, float x2, float y2) {
+		final float[] samples = new float[DEFAULT_SAMPLES];
+		float t = 0;
+		for (int i = 0; i < DEFAULT_SAMPLES; i++) {
+			final float x = (float) i / (DEFAULT_SAMPLES - 1);
+			// x grows with t, so the previous solution is a close guess
+			t = solveBezierT(x, t, x1, x2);
+			samples[i] = bezier(t, y1, y2);
+		}
+		return samples;
+	}
+
+	/**
+	 * @return curve parameter at which the curve reaches given x
+	 */
+	private static float solveBezierT(float x, float guess, float x1, float x2) {
+		float t = guess;
+		for (int i = 0; i < 8; i++) {
+			final float error = bezier(t, x1, x2) - x;
+			if (Math.abs(error) < 1e-6f) {
+				return t;
+			}
+			final float slope = bezierSlope(t, x1, x2);
+			if (Math.abs(slope) < 1e-6f) {
+				break;
+			}
+			t -= error / slope;
+			if (t < 0 || t > 1) {
+				break;
+			}
+		}
+
+		// newton did not converge, x is monotonic in t so bisect
+		float low = 0;
+		float high = 1;
+		t = x;
+		for (int i = 0; i < 32; i++) {
+			final float value = bezier(t, x1, x2);
+			if (Math.abs(value - x) < 1e-6f) {
+				break;
+			}
+			if (value < x) {
+				low = t;
+			} else {
+				high = t;
+			}
+			t = (low + high) / 2;
+		}
+		return t;
+	}
+
+	private static float bezier(float t, float p1, float p2) {
+		final float u = 1 - t;
+		return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+	}
+
+	private static float bezierSlope(float t, float p1, float p2) {
+		final float u = 1 - t;
+		return 3 * u * u * p1 + 6 * u * t * (p2 - p1) + 3 * t * t * (1 - p2);
+	}
+
+	private static final class BezierKey {
+		private final float x1;
+		private final float y1;
+		private final float x2;
+		private final float y2;
+
+		BezierKey(float x1, float y1, float x2, float y2) {
+			this.x1 = x1;
+			this.y1 = y1;
+			this.x2 = x2;
+			this.y2 = y2;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BezierKey)) {
+				return false;
+			}
+			final BezierKey key = (BezierKey) o;
+			return Float.compare(x1, key.x1) == 0
+					&& Float.compare(y1, key.y1) == 0
+					&& Float.compare(x2, key.x2) == 0
+					&& Float.compare(y2, key.y2) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = Float.floatToIntBits(x1);
+			result = 31 * result + Float.floatToIntBits(y1);
+			result = 31 * result + Float.floatToIntBits(x2);
+			result = 31 * result + Float.floatToIntBits(y2);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import com.nineoldandroids.animation.Animator;
+
+import java.util.ArrayList;
+
+/**
+ * Float animator driven by the shared {@link MaterialMenuFrameClock}.
+ * <p/>
+ * Values are handed to a {@link Target} as primitives, so running frames
+ * allocate nothing. The animator is registered with the clock only while it
+ * runs. Subclasses only decide the value of each frame.
+ */
+abstract class MaterialMenuFrameAnimator extends Animator implements
+		MaterialMenuFrameClock.Callback {
+
+	interface Target {
+		void onAnimationUpdate(float value);
+	}
+
+	private final Target target;
+
+	float startValue;
+	float endValue;
+	private long startDelay;
+
+	private long startTime;
+	private boolean running;
+
+	MaterialMenuFrameAnimator(Target target) {
+		this.target = target;
+	}
+
+	void setFloatValues(float startValue, float endValue) {
+		this.startValue = startValue;
+		this.endValue = endValue;
+	}
+
+	/**
+	 * Prepare a new run, called before the start value is reported
+	 */
+	void onStart() {
+	}
+
+	/**
+	 * Report the value of a frame through {@link #update(float)}
+	 *
+	 * @param playTime milliseconds since the first frame after the start delay
+	 * @return true once the end value has been reported
+	 */
+	abstract boolean onFrame(long playTime);
+
+	final void update(float value) {
+		target.onAnimationUpdate(value);
+	}
+
+	@Override
+	public void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		startTime = -1;
+		onStart();
+
+		final ArrayList<AnimatorListener> listeners = getListeners();
+		if (listeners != null) {
+			for (int i = 0; i < listeners.size(); i++) {
+				listeners.get(i).onAnimationStart(this);
+			}
+		}
+
+		target.onAnimationUpdate(startValue);
+		MaterialMenuFrameClock.getInstance().addCallback(this);
+	}
+
+	@Override
+	public void cancel() {
+		if (!running) {
+			return;
+		}
+		finish(true);
+	}
+
+	@Override
+	public void end() {
+		if (!running) {
+			return;
+		}
+		target.onAnimationUpdate(endValue);
+		finish(false);
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public long getStartDelay() {
+		return startDelay;
+	}
+
+	@Override
+	public void setStartDelay(long startDelay) {
+		this.startDelay = startDelay;
+	}
+
+	@Override
+	public void doFrame(long frameTime) {
+		if (!running) {
+			return;
+		}
+
+		if (startTime < 0) {
+			startTime = frameTime + startDelay;
+		}
+		if (frameTime < startTime) {
+			return;
+		}
+
+		if (onFrame(frameTime - startTime)) {
+			finish(false);
+		}
+	}
+
+	private void finish(boolean canceled) {
+		running = false;
+		MaterialMenuFrameClock.getInstance().removeCallback(this);
+
+		final ArrayList<AnimatorListener> listeners = getListeners();
+		if (listeners != null) {
+			if (canceled) {
+				for (int i = 0; i < listeners.size(); i++) {
+					listeners.get(i).onAnimationCancel(this);
+				}
+			}
+			for (int i = 0; i < listeners.size(); i++) {
+				listeners.get(i).onAnimationEnd(this);
+			}
+		}
+	}
+}
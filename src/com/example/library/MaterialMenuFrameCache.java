@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+
+import java.util.Map;
+
+import static com.example.library.MaterialMenuDrawable.AnimationState;
+import static com.example.library.MaterialMenuDrawable.Stroke;
+
+/**
+ * Cache of rasterized {@link MaterialMenuDrawable} frames.
+ * <p/>
+ * Transformation values are quantized into a fixed number of steps per
+ * transformation, and each step is rendered into a {@link Bitmap} once.
+ * Frames are evicted least recently used first once the byte budget is
+ * exceeded. A cache can be shared by any number of drawables.
+ *
+ * @see MaterialMenuDrawable#setFrameCache(MaterialMenuFrameCache)
+ */
+public final class MaterialMenuFrameCache {
+
+	public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+	public static final int DEFAULT_STEPS = 48;
+
+	private final int steps;
+	private final LruCache<Long, Bitmap> frames;
+
+	public MaterialMenuFrameCache() {
+		this(DEFAULT_MAX_BYTES, DEFAULT_STEPS);
+	}
+
+	/**
+	 * @param maxBytes maximum number of bytes held by cached frames
+	 * @param steps    number of frames a transformation between two icon
+	 *                 states is quantized into
+	 */
+	public MaterialMenuFrameCache(int maxBytes, int steps) {
+		if (steps < 1 || steps > 0x7f) {
+			throw new IllegalArgumentException("Steps must be between 1 and 127");
+		}
+		this.steps = steps;
+		this.frames = new LruCache<Long, Bitmap>(maxBytes) {
+			@Override
+			protected int sizeOf(Long key, Bitmap value) {
+				return value.getRowBytes() * value.getHeight();
+			}
+		};
+	}
+
+	/**
+	 * @return number of frames served from the cache
+	 */
+	public int hitCount() {
+		return frames.hitCount();
+	}
+
+	/**
+	 * @return number of frames that had to be rendered
+	 */
+	public int missCount() {
+		return frames.missCount();
+	}
+
+	/**
+	 * @return number of frames evicted to stay within the byte budget
+	 */
+	public int evictionCount() {
+		return frames.evictionCount();
+	}
+
+	/**
+	 * @return number of bytes held by cached frames
+	 */
+	public int size() {
+		return frames.size();
+	}
+
+	public int maxSize() {
+		return frames.maxSize();
+	}
+
+	public void evictAll() {
+		frames.evictAll();
+	}
+
+	int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * @return quantized step of a transformation value, clamped between
+	 *         {@code 0} and {@code 2}
+	 */
+	int quantize(float transformationValue) {
+		return Math.round(Math.max(0, Math.min(2, transformationValue)) * steps);
+	}
+
+	/**
+	 * @return transformation value a quantized step is rendered at
+	 */
+	float valueOf(int step) {
+		return (float) step / steps;
+	}
+
+	/**
+	 * Pack everything a frame depends on into a cache key
+	 */
+	static long keyOf(AnimationState animationState, int step, Stroke stroke,
+			int size, int color, boolean rtl) {
+		return (long) color << 32
+				| (long) (size & 0xffff) << 16
+				| (long) step << 8
+				| animationState.ordinal() << 3
+				| stroke.ordinal() << 1
+				| (rtl ? 1 : 0);
+	}
+
+	/**
+	 * @return true if a key belongs to frames of given configuration
+	 */
+	static boolean matches(long key, Stroke stroke, int size, int color) {
+		return (int) (key >>> 32) == color
+				&& (int) (key >>> 16 & 0xffff) == (size & 0xffff)
+				&& (int) (key >>> 1 & 0x3) == stroke.ordinal();
+	}
+
+	Bitmap get(long key) {
+		return frames.get(key);
+	}
+
+	void put(long key, Bitmap frame) {
+		frames.put(key, frame);
+	}
+
+	Map<Long, Bitmap> snapshot() {
+		return frames.snapshot();
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Process wide frame clock ticking every running {@link MaterialMenuAnimator}
+ * from a single frame callback.
+ * <p/>
+ * Frames come from {@link Choreographer} where available and from a
+ * {@link Handler} on older platforms. Must only be used from the main thread.
+ */
+final class MaterialMenuFrameClock implements Runnable {
+
+	interface Callback {
+		/**
+		 * @param frameTime frame time in {@link SystemClock#uptimeMillis()} base
+		 */
+		void doFrame(long frameTime);
+	}
+
+	/**
+	 * Frame delay used when {@link Choreographer} is not available
+	 */
+	private static final long FRAME_DELAY = 10;
+
+	private static MaterialMenuFrameClock instance;
+
+	private final ArrayList<Callback> callbacks = new ArrayList<Callback>();
+
+	/**
+	 * Reused copy of callbacks, so they can register and unregister while a
+	 * frame is dispatched
+	 */
+	private Callback[] dispatching = new Callback[8];
+
+	private final Handler handler;
+	private ChoreographerCallback choreographerCallback;
+
+	private boolean frameScheduled;
+
+	private MaterialMenuFrameClock() {
+		handler = new Handler(Looper.getMainLooper());
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			choreographerCallback = new ChoreographerCallback(this);
+		}
+	}
+
+	static MaterialMenuFrameClock getInstance() {
+		if (instance == null) {
+			instance = new MaterialMenuFrameClock();
+		}
+		return instance;
+	}
+
+	/**
+	 * Tick given callback on every frame until it is removed
+	 */
+	void addCallback(Callback callback) {
+		if (!callbacks.contains(callback)) {
+			callbacks.add(callback);
+		}
+		scheduleFrame();
+	}
+
+	void removeCallback(Callback callback) {
+		callbacks.remove(callback);
+		if (callbacks.isEmpty()) {
+			unscheduleFrame();
+		}
+	}
+
+	@Override
+	public void run() {
+		doFrame(SystemClock.uptimeMillis());
+	}
+
+	private void doFrame(long frameTime) {
+		frameScheduled = false;
+
+		final int count = callbacks.size();
+		if (dispatching.length < count) {
+			dispatching = new Callback[count * 2];
+		}
+		callbacks.toArray(dispatching);
+
+		for (int i = 0; i < count; i++) {
+			dispatching[i].doFrame(frameTime);
+			dispatching[i] = null;
+		}
+
+		if (!callbacks.isEmpty()) {
+			scheduleFrame();
+		}
+	}
+
+	private void scheduleFrame() {
+		if (frameScheduled) {
+			return;
+		}
+		frameScheduled = true;
+		if (choreographerCallback != null) {
+			choreographerCallback.post();
+		} else {
+			handler.postDelayed(this, FRAME_DELAY);
+		}
+	}
+
+	private void unscheduleFrame() {
+		if (!frameScheduled) {
+			return;
+		}
+		frameScheduled = false;
+		if (choreographerCallback != null) {
+			choreographerCallback.remove();
+		} else {
+			handler.removeCallbacks(this);
+		}
+	}
+
+	/**
+	 * Kept separate so that {@link Choreographer} is only loaded on platforms
+	 * providing it
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static final class ChoreographerCallback implements
+			Choreographer.FrameCallback {
+		private final MaterialMenuFrameClock clock;
+
+		ChoreographerCallback(MaterialMenuFrameClock clock) {
+			this.clock = clock;
+		}
+
+		void post() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		void remove() {
+			Choreographer.getInstance().removeFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			clock.doFrame(frameTimeNanos / 1000000);
+		}
+	}
+}
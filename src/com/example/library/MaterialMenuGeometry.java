@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import static com.example.library.MaterialMenuDrawable.AnimationState;
+import static com.example.library.MaterialMenuDrawable.IconState;
+import static com.example.library.MaterialMenuDrawable.Stroke;
+
+/**
+ * Line geometry of {@link MaterialMenuDrawable} for a given {@link Stroke} and
+ * size.
+ * <p/>
+ * Every {@link IconState} is described once as a pose holding the rotation,
+ * pivot, length and alpha of each line. A frame of any {@link AnimationState}
+ * is a linear interpolation between the poses of its two icon states. A few
+ * transformations turn lines past the pose angles, or the other way around
+ * when played backwards, and get their own start or end frames.
+ * <p/>
+ * Instances are immutable once constructed and shared by every drawable of
+ * the same size and stroke.
+ */
+final class MaterialMenuGeometry {
+
+	/**
+	 * Version of the poses, increment whenever they change so that persisted
+	 * frames get invalidated
+	 */
+	static final int VERSION = 2;
+
+	static final int LINE_TOP = 0;
+	static final int LINE_MIDDLE = 1;
+	static final int LINE_BOTTOM = 2;
+	static final int LINE_COUNT = 3;
+
+	/*
+	 * Per line parameters, stored consecutively for each line
+	 */
+	static final int ROTATION = 0;
+	static final int PIVOT_X = 1;
+	static final int PIVOT_Y = 2;
+	static final int ROTATION2 = 3;
+	static final int START_X = 4;
+	static final int STOP_X = 5;
+	static final int ALPHA = 6;
+	static final int PARAM_COUNT = 7;
+
+	static final int FRAME_SIZE = LINE_COUNT * PARAM_COUNT;
+
+	/**
+	 * Number of floats describing the start and end frames of a transition
+	 */
+	static final int TRANSITION_SIZE = 2 * FRAME_SIZE;
+
+	/**
+	 * Number of floats describing the end points of all lines
+	 */
+	static final int POINTS_SIZE = LINE_COUNT * 4;
+
+	private static final int BASE_DRAWABLE_WIDTH = 40;
+	private static final int BASE_DRAWABLE_HEIGHT = 40;
+	private static final int BASE_ICON_WIDTH = 20;
+	private static final int BASE_CIRCLE_RADIUS = 18;
+
+	private static final float ARROW_MID_LINE_ANGLE = 180;
+	private static final float ARROW_TOP_LINE_ANGLE = 135;
+	private static final float ARROW_BOT_LINE_ANGLE = 225;
+	private static final float X_TOP_LINE_ANGLE = 44;
+	private static final float X_BOT_LINE_ANGLE = -44;
+	private static final float X_ROTATION_ANGLE = 90;
+	private static final float CHECK_MIDDLE_ANGLE = 135;
+	private static final float CHECK_BOTTOM_ANGLE = -90;
+	private static final float UP_TOP_ANGLE = -30;
+	private static final float UP_BOTTOM_ANGLE = 30;
+	private static final float FLIP_ANGLE = 180;
+	private static final float FULL_TURN = 360;
+
+	private static final float VISIBLE = 255;
+	private static final float HIDDEN = 0;
+
+	private final float diph;
+	private final float dip1;
+	private final float dip2;
+	private final float dip3;
+	private final float dip4;
+	private final float dip8;
+
+	private final int width;
+	private final int height;
+	private final float circleRadius;
+	private final float strokeWidth;
+	private final float topPadding;
+	private final float sidePadding;
+
+	private final Stroke stroke;
+
+	// line y coordinate and secondary pivot do not change during animations
+	private final float[] lineY = new float[LINE_COUNT];
+	private final float[] linePivotX2 = new float[LINE_COUNT];
+	private final float[] linePivotY2 = new float[LINE_COUNT];
+
+	private final float[][] poses = new float[IconState.values().length][FRAME_SIZE];
+
+	/**
+	 * Start and end frames of every {@link AnimationState}
+	 */
+	private final float[][] transitions = new float[AnimationState.values().length][TRANSITION_SIZE];
+
+	/**
+	 * Frames used while transformations play from the second state to the
+	 * first, shared with {@link #transitions} where the motion is the same
+	 */
+	private final float[][] backwardTransitions = new float[AnimationState.values().length][];
+
+	/**
+	 * @param stroke stroke of the icon
+	 * @param dip1   size of one dip multiplied by scale, in pixels
+	 */
+	MaterialMenuGeometry(Stroke stroke, float dip1) {
+		this.stroke = stroke;
+		this.width = (int) (dip1 * BASE_DRAWABLE_WIDTH);
+		this.height = (int) (dip1 * BASE_DRAWABLE_HEIGHT);
+		this.circleRadius = dip1 * BASE_CIRCLE_RADIUS;
+		this.strokeWidth = dip1 * stroke.getStrokeWidth();
+		this.dip1 = dip1;
+		this.dip2 = dip1 * 2;
+		this.dip3 = dip1 * 3;
+		this.dip4 = dip1 * 4;
+		this.dip8 = dip1 * 8;
+		this.diph = dip1 / 2;
+		this.sidePadding = (width - dip1 * BASE_ICON_WIDTH) / 2;
+		this.topPadding = (height - 5 * dip3) / 2;
+
+		lineY[LINE_TOP] = topPadding + dip2;
+		lineY[LINE_MIDDLE] = topPadding + dip3 / 2 * 5;
+		lineY[LINE_BOTTOM] = height - topPadding - dip2;
+
+		// pivot at center of line
+		linePivotX2[LINE_TOP] = width / 2 + dip3 / 2;
+		linePivotY2[LINE_TOP] = topPadding + dip2;
+		linePivotX2[LINE_BOTTOM] = width / 2 + dip3 / 2;
+		linePivotY2[LINE_BOTTOM] = height - topPadding - dip2;
+
+		initPoses();
+		initTransitions();
+	}
+
+	Stroke getStroke() {
+		return stroke;
+	}
+
+	float getDip1() {
+		return dip1;
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	float getCircleRadius() {
+		return circleRadius;
+	}
+
+	float getStrokeWidth() {
+		return strokeWidth;
+	}
+
+	float getLineY(int line) {
+		return lineY[line];
+	}
+
+	float getPivotX2(int line) {
+		return linePivotX2[line];
+	}
+
+	float getPivotY2(int line) {
+		return linePivotY2[line];
+	}
+
+	/**
+	 * Resolve line parameters of a frame into {@code out}
+	 *
+	 * @param animationState transformation being drawn
+	 * @param ratio          progress from the first to the second state, between 0 and 1
+	 * @param forward        true if playing from the first state to the second
+	 * @param out            array of at least {@link #FRAME_SIZE} floats
+	 */
+	void resolveFrame(AnimationState animationState, float ratio,
+			boolean forward, float[] out) {
+		resolveFrame((forward ? transitions : backwardTransitions)[animationState
+				.ordinal()], ratio, out);
+	}
+
+	/**
+	 * Resolve line parameters of a frame of any transition into {@code out}
+	 *
+	 * @param transition start and end frames, {@link #TRANSITION_SIZE} floats
+	 * @param ratio      progress from the start to the end frame, between 0 and 1
+	 * @param out        array of at least {@link #FRAME_SIZE} floats
+	 */
+	static void resolveFrame(float[] transition, float ratio, float[] out) {
+		for (int i = 0; i < FRAME_SIZE; i++) {
+			final float start = transition[i];
+			out[i] = start + (transition[FRAME_SIZE + i] - start) * ratio;
+		}
+		// springs overshoot the transition, keep alpha a valid paint alpha
+		for (int i = ALPHA; i < FRAME_SIZE; i += PARAM_COUNT) {
+			out[i] = Math.max(HIDDEN, Math.min(VISIBLE, out[i]));
+		}
+	}
+
+	/**
+	 * Apply both rotations of a resolved frame to the line end points, the
+	 * same way {@link android.graphics.Canvas#rotate(float, float, float)}
+	 * would, and write them to {@code out} as consecutive
+	 * {@code x0, y0, x1, y1} quadruples.
+	 *
+	 * @param frame resolved frame of {@link #FRAME_SIZE} floats
+	 * @param rtl   true to mirror the points horizontally
+	 * @param out   array of at least {@link #POINTS_SIZE} floats
+	 */
+	void resolvePoints(float[] frame, boolean rtl, float[] out) {
+		for (int line = 0; line < LINE_COUNT; line++) {
+			final int offset = line * PARAM_COUNT;
+			final int point = line * 4;
+			final float y = lineY[line];
+
+			out[point] = frame[offset + START_X];
+			out[point + 1] = y;
+			out[point + 2] = frame[offset + STOP_X];
+			out[point + 3] = y;
+
+			// secondary rotation is applied to the line first
+			rotate(out, point, frame[offset + ROTATION2], linePivotX2[line],
+					linePivotY2[line]);
+			rotate(out, point, frame[offset + ROTATION],
+					frame[offset + PIVOT_X], frame[offset + PIVOT_Y]);
+
+			if (rtl) {
+				out[point] = width - out[point];
+				out[point + 2] = width - out[point + 2];
+			}
+		}
+	}
+
+	private static void rotate(float[] points, int offset, float degrees,
+			float pivotX, float pivotY) {
+		if (degrees == 0) {
+			return;
+		}
+		final double radians = Math.toRadians(degrees);
+		final float cos = (float) Math.cos(radians);
+		final float sin = (float) Math.sin(radians);
+		for (int i = offset; i < offset + 4; i += 2) {
+			final float x = points[i] - pivotX;
+			final float y = points[i + 1] - pivotY;
+			points[i] = pivotX + x * cos - y * sin;
+			points[i + 1] = pivotY + x * sin + y * cos;
+		}
+	}
+
+	/*
+	 * Poses
+	 */
+
+	private void initPoses() {
+		final float centerX = width / 2;
+		final float centerY = height / 2;
+		final float strokeModifier = resolveStrokeModifier();
+
+		// BURGER: three parallel lines
+		for (int line = 0; line < LINE_COUNT; line++) {
+			put(IconState.BURGER, line, 0, centerX, centerY, 0, sidePadding,
+					width - sidePadding, VISIBLE);
+		}
+
+		// ARROW: side lines rotate by the middle, middle line turns around
+		put(IconState.ARROW, LINE_TOP, ARROW_BOT_LINE_ANGLE, centerX, centerY,
+				0, sidePadding + dip3, width - sidePadding - strokeModifier,
+				VISIBLE);
+		put(IconState.ARROW, LINE_MIDDLE, ARROW_MID_LINE_ANGLE, centerX,
+				centerY, 0, sidePadding, width - sidePadding - strokeModifier
+						/ 2, VISIBLE);
+		put(IconState.ARROW, LINE_BOTTOM, ARROW_TOP_LINE_ANGLE, centerX,
+				centerY, 0, sidePadding + dip3, width - sidePadding
+						- strokeModifier, VISIBLE);
+
+		// X: side lines cross at their left corners, no middle line
+		put(IconState.X, LINE_TOP, X_TOP_LINE_ANGLE, sidePadding + dip4,
+				topPadding + dip3, X_ROTATION_ANGLE, sidePadding + dip3, width
+						- sidePadding, VISIBLE);
+		put(IconState.X, LINE_MIDDLE, 0, centerX, centerY, 0, sidePadding,
+				width - sidePadding, HIDDEN);
+		put(IconState.X, LINE_BOTTOM, X_BOT_LINE_ANGLE, sidePadding + dip4,
+				height - topPadding - dip3, -X_ROTATION_ANGLE, sidePadding
+						+ dip3, width - sidePadding, VISIBLE);
+
+		// CHECK: long middle line and short bottom line, no top line
+		put(IconState.CHECK, LINE_TOP, 0, centerX, centerY, 0, sidePadding,
+				width - sidePadding, HIDDEN);
+		put(IconState.CHECK, LINE_MIDDLE, CHECK_MIDDLE_ANGLE, width / 2 + dip3
+				+ diph, centerY, 0, sidePadding + dip4 + dip3 / 2, width
+				- sidePadding + dip1, VISIBLE);
+		put(IconState.CHECK, LINE_BOTTOM, CHECK_BOTTOM_ANGLE
+				+ ARROW_TOP_LINE_ANGLE, width / 2 + dip3, height / 2 - dip3, 0,
+				sidePadding + dip8, width - sidePadding - strokeModifier,
+				VISIBLE);
+
+		// UP: side lines rotate by their center into a chevron, no middle line
+		put(IconState.UP, LINE_TOP, 0, centerX, centerY, UP_TOP_ANGLE,
+				sidePadding - dip3, width - sidePadding - dip8 - dip2, VISIBLE);
+		put(IconState.UP, LINE_MIDDLE, 0, centerX, centerY, 0, sidePadding,
+				width - sidePadding, HIDDEN);
+		put(IconState.UP, LINE_BOTTOM, FLIP_ANGLE, centerX, centerY,
+				UP_BOTTOM_ANGLE, sidePadding - dip3, width - sidePadding - dip8
+						- dip2, VISIBLE);
+
+		// DOWN: UP with both side lines flipped
+		put(IconState.DOWN, LINE_TOP, FLIP_ANGLE, centerX, centerY,
+				UP_TOP_ANGLE, sidePadding - dip3, width - sidePadding - dip8
+						- dip2, VISIBLE);
+		put(IconState.DOWN, LINE_MIDDLE, 0, centerX, centerY, 0, sidePadding,
+				width - sidePadding, HIDDEN);
+		put(IconState.DOWN, LINE_BOTTOM, 0, centerX, centerY, UP_BOTTOM_ANGLE,
+				sidePadding - dip3, width - sidePadding - dip8 - dip2, VISIBLE);
+	}
+
+	/**
+	 * Build a transition from an already resolved frame, like a frame of an
+	 * interrupted transformation, to the pose of an icon state
+	 *
+	 * @param from resolved frame of {@link #FRAME_SIZE} floats
+	 * @param to   icon state to end at
+	 * @param out  array of at least {@link #TRANSITION_SIZE} floats
+	 */
+	void resolveTransition(float[] from, IconState to, float[] out) {
+		final float[] pose = poses[to.ordinal()];
+
+		System.arraycopy(from, 0, out, 0, FRAME_SIZE);
+		System.arraycopy(pose, 0, out, FRAME_SIZE, FRAME_SIZE);
+
+		for (int line = 0; line < LINE_COUNT; line++) {
+			final int offset = line * PARAM_COUNT;
+			if (from[offset + ALPHA] == HIDDEN) {
+				System.arraycopy(pose, offset, out, offset, ALPHA);
+			} else if (pose[offset + ALPHA] == HIDDEN) {
+				System.arraycopy(from, offset, out, FRAME_SIZE + offset, ALPHA);
+			}
+		}
+	}
+
+	/**
+	 * Pairs up poses of every {@link AnimationState}. A line hidden in one
+	 * pose keeps the geometry of the other pose so that it only fades.
+	 */
+	private void initTransitions() {
+		for (AnimationState animationState : AnimationState.values()) {
+			final float[] transition = transitions[animationState.ordinal()];
+			final float[] first = poses[animationState.getFirstState().ordinal()];
+			final float[] second = poses[animationState.getSecondState().ordinal()];
+
+			System.arraycopy(first, 0, transition, 0, FRAME_SIZE);
+			System.arraycopy(second, 0, transition, FRAME_SIZE, FRAME_SIZE);
+
+			for (int line = 0; line < LINE_COUNT; line++) {
+				final int offset = line * PARAM_COUNT;
+				// alpha is the last parameter and is not copied
+				if (first[offset + ALPHA] == HIDDEN) {
+					System.arraycopy(second, offset, transition, offset, ALPHA);
+				} else if (second[offset + ALPHA] == HIDDEN) {
+					System.arraycopy(first, offset, transition, FRAME_SIZE
+							+ offset, ALPHA);
+				}
+			}
+			backwardTransitions[animationState.ordinal()] = transition;
+		}
+
+		// arrow bottom line keeps turning the same way into the X
+		transitions[AnimationState.ARROW_X.ordinal()][FRAME_SIZE
+				+ LINE_BOTTOM * PARAM_COUNT + ROTATION] += FULL_TURN;
+		// X bottom line unwinds its secondary rotation into the chevrons
+		transitions[AnimationState.X_UP.ordinal()][LINE_BOTTOM * PARAM_COUNT
+				+ ROTATION2] = X_ROTATION_ANGLE;
+		transitions[AnimationState.X_DOWN.ordinal()][LINE_BOTTOM * PARAM_COUNT
+				+ ROTATION2] = X_ROTATION_ANGLE;
+
+		// arrow keeps spinning the same way back to the burger
+		final float[] arrowToBurger = backward(AnimationState.BURGER_ARROW);
+		for (int line = 0; line < LINE_COUNT; line++) {
+			arrowToBurger[line * PARAM_COUNT + ROTATION] += FULL_TURN;
+		}
+		// X bottom line turns back the opposite way
+		backward(AnimationState.BURGER_X)[FRAME_SIZE + LINE_BOTTOM
+				* PARAM_COUNT + ROTATION2] = X_ROTATION_ANGLE;
+	}
+
+	/**
+	 * @return backward transition of given state, separated from the forward
+	 *         one
+	 */
+	private float[] backward(AnimationState animationState) {
+		final int ordinal = animationState.ordinal();
+		if (backwardTransitions[ordinal] == transitions[ordinal]) {
+			backwardTransitions[ordinal] = transitions[ordinal].clone();
+		}
+		return backwardTransitions[ordinal];
+	}
+
+	private void put(IconState iconState, int line, float rotation,
+			float pivotX, float pivotY, float rotation2, float startX,
+			float stopX, float alpha) {
+		final float[] pose = poses[iconState.ordinal()];
+		final int offset = line * PARAM_COUNT;
+		pose[offset + ROTATION] = rotation;
+		pose[offset + PIVOT_X] = pivotX;
+		pose[offset + PIVOT_Y] = pivotY;
+		pose[offset + ROTATION2] = rotation2;
+		pose[offset + START_X] = startX;
+		pose[offset + STOP_X] = stopX;
+		pose[offset + ALPHA] = alpha;
+	}
+
+	/**
+	 * @return how much the arrow lines are shortened so their stroke ends meet
+	 */
+	private float resolveStrokeModifier() {
+		switch (stroke) {
+		case REGULAR:
+			return dip3;
+		case THIN:
+			return dip3 + diph;
+		case EXTRA_THIN:
+			return dip4;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+
+import static com.example.library.MaterialMenuDrawable.AnimationState;
+
+/**
+ * Cache of recorded {@link MaterialMenuDrawable} frames.
+ * <p/>
+ * Like {@link MaterialMenuFrameCache} transformation values are quantized,
+ * but every step is recorded into a {@link Picture} instead of a bitmap, so
+ * frames stay resolution independent and cost a few hundred bytes each.
+ * Recorded pictures capture the paint, so a cache belongs to one drawable
+ * and has to be cleared whenever its paint changes.
+ */
+final class MaterialMenuPictureCache {
+
+	static final int DEFAULT_MAX_PICTURES = 128;
+
+	private final int steps;
+	private final LruCache<Integer, Picture> pictures;
+
+	MaterialMenuPictureCache() {
+		this(DEFAULT_MAX_PICTURES, MaterialMenuFrameCache.DEFAULT_STEPS);
+	}
+
+	MaterialMenuPictureCache(int maxPictures, int steps) {
+		this.steps = steps;
+		this.pictures = new LruCache<Integer, Picture>(maxPictures);
+	}
+
+	/**
+	 * Pictures can not be replayed into hardware accelerated canvases
+	 * before Marshmallow
+	 *
+	 * @return true if recorded frames can be drawn into given canvas
+	 */
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	static boolean canDraw(Canvas canvas) {
+		return Build.VERSION.SDK_INT >= 23
+				|| Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+				|| !canvas.isHardwareAccelerated();
+	}
+
+	/**
+	 * @return quantized step of a transformation value, clamped between
+	 *         {@code 0} and {@code 2}
+	 */
+	int quantize(float transformationValue) {
+		return Math.round(Math.max(0, Math.min(2, transformationValue)) * steps);
+	}
+
+	float valueOf(int step) {
+		return (float) step / steps;
+	}
+
+	/**
+	 * Pack a frame into a cache key. Animation state ordinals take four bits
+	 * below the step, which goes up to twice the step count.
+	 */
+	static int keyOf(AnimationState animationState, int step, boolean rtl) {
+		return step << 5 | animationState.ordinal() << 1 | (rtl ? 1 : 0);
+	}
+
+	Picture get(int key) {
+		return pictures.get(key);
+	}
+
+	void put(int key, Picture picture) {
+		pictures.put(key, picture);
+	}
+
+	void evictAll() {
+		pictures.evictAll();
+	}
+}
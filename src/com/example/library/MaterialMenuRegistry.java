@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import static com.example.library.MaterialMenuDrawable.Stroke;
+
+/**
+ * Process wide registry of {@link MaterialMenuGeometry},
+ * {@link MaterialMenuFrameCache} and {@link MaterialMenuRestingFrames}
+ * instances shared by drawables of the same configuration.
+ * <p/>
+ * Every dimension of a drawable is a multiple of one scaled dip, so a
+ * configuration is identified by that unit (density times scale) and the
+ * {@link Stroke}; rendered frames additionally by color. Entries are weakly
+ * referenced and go away together with the last drawable using them.
+ */
+final class MaterialMenuRegistry {
+
+	private static final HashMap<Key, WeakReference<MaterialMenuGeometry>> geometries = new HashMap<Key, WeakReference<MaterialMenuGeometry>>();
+	private static final HashMap<Key, WeakReference<MaterialMenuFrameCache>> frameCaches = new HashMap<Key, WeakReference<MaterialMenuFrameCache>>();
+	private static final HashMap<Key, WeakReference<MaterialMenuRestingFrames>> restingFrames = new HashMap<Key, WeakReference<MaterialMenuRestingFrames>>();
+
+	private MaterialMenuRegistry() {
+	}
+
+	/**
+	 * @param dip1   size of one dip multiplied by scale, in pixels
+	 * @param stroke stroke of the icon
+	 * @return shared geometry of given configuration
+	 */
+	static synchronized MaterialMenuGeometry obtainGeometry(float dip1,
+			Stroke stroke) {
+		final Key key = new Key(dip1, stroke, 0);
+		MaterialMenuGeometry geometry = get(geometries, key);
+		if (geometry == null) {
+			geometry = new MaterialMenuGeometry(stroke, dip1);
+			purge(geometries);
+			geometries.put(key, new WeakReference<MaterialMenuGeometry>(geometry));
+		}
+		return geometry;
+	}
+
+	/**
+	 * @return shared frame cache of given geometry and color
+	 */
+	static synchronized MaterialMenuFrameCache obtainFrameCache(
+			MaterialMenuGeometry geometry, int color) {
+		final Key key = new Key(geometry.getDip1(), geometry.getStroke(), color);
+		MaterialMenuFrameCache frameCache = get(frameCaches, key);
+		if (frameCache == null) {
+			frameCache = new MaterialMenuFrameCache();
+			purge(frameCaches);
+			frameCaches.put(key, new WeakReference<MaterialMenuFrameCache>(frameCache));
+		}
+		return frameCache;
+	}
+
+	/**
+	 * @return shared resting frames of given geometry and color
+	 */
+	static synchronized MaterialMenuRestingFrames obtainRestingFrames(
+			MaterialMenuGeometry geometry, int color) {
+		final Key key = new Key(geometry.getDip1(), geometry.getStroke(), color);
+		MaterialMenuRestingFrames frames = get(restingFrames, key);
+		if (frames == null) {
+			frames = new MaterialMenuRestingFrames();
+			purge(restingFrames);
+			restingFrames.put(key, new WeakReference<MaterialMenuRestingFrames>(frames));
+		}
+		return frames;
+	}
+
+	private static <V> V get(HashMap<Key, WeakReference<V>> map, Key key) {
+		final WeakReference<V> reference = map.get(key);
+		return reference != null ? reference.get() : null;
+	}
+
+	private static <V> void purge(HashMap<Key, WeakReference<V>> map) {
+		final Iterator<WeakReference<V>> iterator = map.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().get() == null) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static final class Key {
+		private final int dip1Bits;
+		private final Stroke stroke;
+		private final int color;
+
+		Key(float dip1, Stroke stroke, int color) {
+			this.dip1Bits = Float.floatToIntBits(dip1);
+			this.stroke = stroke;
+			this.color = color;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) o;
+			return dip1Bits == key.dip1Bits && stroke == key.stroke
+					&& color == key.color;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = dip1Bits;
+			result = 31 * result + stroke.hashCode();
+			result = 31 * result + color;
+			return result;
+		}
+	}
+}
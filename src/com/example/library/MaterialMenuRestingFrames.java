@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Picture;
+
+import static com.example.library.MaterialMenuDrawable.IconState;
+
+/**
+ * Rendered frames of every resting {@link IconState}, shared by all
+ * drawables of the same density, scale, stroke and color through
+ * {@link MaterialMenuRegistry}.
+ * <p/>
+ * A state is recorded into a {@link Picture} where the canvas can replay it
+ * and rasterized into a bitmap otherwise, each on first use. Frames are only
+ * ever added, a frame rendered twice by concurrent draws is harmless.
+ */
+final class MaterialMenuRestingFrames {
+
+	private static final int FRAME_COUNT = IconState.values().length * 2;
+
+	private final Picture[] pictures = new Picture[FRAME_COUNT];
+	private final Bitmap[] bitmaps = new Bitmap[FRAME_COUNT];
+
+	static int indexOf(IconState iconState, boolean rtl) {
+		return iconState.ordinal() * 2 + (rtl ? 1 : 0);
+	}
+
+	Picture getPicture(int index) {
+		return pictures[index];
+	}
+
+	void putPicture(int index, Picture picture) {
+		pictures[index] = picture;
+	}
+
+	Bitmap getBitmap(int index) {
+		return bitmaps[index];
+	}
+
+	void putBitmap(int index, Bitmap bitmap) {
+		bitmaps[index] = bitmap;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2014 Balys Valentukevicius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.library;
+
+import android.view.animation.Interpolator;
+
+/**
+ * Float animator moving its value with a damped spring instead of over a
+ * fixed duration.
+ * <p/>
+ * Like {@link MaterialMenuAnimator} it is driven by the shared
+ * {@link MaterialMenuFrameClock} and allocates nothing per frame. The
+ * animation ends as soon as both the distance to the end value and the
+ * velocity drop below the rest threshold. A running spring can be sent to a
+ * new end value without losing its velocity.
+ */
+final class MaterialMenuSpringAnimator extends MaterialMenuFrameAnimator {
+
+	static final float DEFAULT_STIFFNESS = 800f;
+	static final float DEFAULT_DAMPING_RATIO = 1f;
+	static final float DEFAULT_REST_THRESHOLD = 0.001f;
+
+	/**
+	 * Longest step integrated at once, keeps stiff springs stable
+	 */
+	private static final float MAX_STEP = 0.004f;
+	/**
+	 * Longest frame gap accounted for, in seconds
+	 */
+	private static final float MAX_FRAME = 1 / 30f;
+
+	private float stiffness = DEFAULT_STIFFNESS;
+	private float dampingRatio = DEFAULT_DAMPING_RATIO;
+	private float restThreshold = DEFAULT_REST_THRESHOLD;
+
+	private float startVelocity;
+
+	private float value;
+	private float velocity;
+	private long lastPlayTime;
+
+	MaterialMenuSpringAnimator(Target target) {
+		super(target);
+	}
+
+	/**
+	 * @param velocity value units per second the next start begins with
+	 */
+	void setStartVelocity(float velocity) {
+		this.startVelocity = velocity;
+	}
+
+	/**
+	 * @return current velocity in value units per second
+	 */
+	float getVelocity() {
+		return isRunning() ? velocity : 0;
+	}
+
+	/**
+	 * Move a running spring towards a new end value, keeping its position
+	 * and velocity
+	 */
+	void animateTo(float endValue) {
+		this.endValue = endValue;
+	}
+
+	void setStiffness(float stiffness) {
+		this.stiffness = stiffness;
+	}
+
+	void setDampingRatio(float dampingRatio) {
+		this.dampingRatio = dampingRatio;
+	}
+
+	/**
+	 * @param restThreshold distance and per frame velocity below which the
+	 *                      spring is considered at rest
+	 */
+	void setRestThreshold(float restThreshold) {
+		this.restThreshold = restThreshold;
+	}
+
+	@Override
+	void onStart() {
+		value = startValue;
+		velocity = startVelocity;
+		startVelocity = 0;
+		lastPlayTime = 0;
+	}
+
+	/**
+	 * Springs run until they settle, the duration is ignored
+	 */
+	@Override
+	public MaterialMenuSpringAnimator setDuration(long duration) {
+		return this;
+	}
+
+	@Override
+	public long getDuration() {
+		return 0;
+	}
+
+	/**
+	 * Springs do not interpolate, the interpolator is ignored
+	 */
+	@Override
+	public void setInterpolator(Interpolator interpolator) {
+	}
+
+	@Override
+	boolean onFrame(long playTime) {
+		if (playTime <= lastPlayTime) {
+			return false;
+		}
+
+		float remaining = Math.min(MAX_FRAME,
+				(playTime - lastPlayTime) / 1000f);
+		lastPlayTime = playTime;
+
+		final float damping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+		while (remaining > 0) {
+			final float step = Math.min(remaining, MAX_STEP);
+			// semi-implicit euler, velocity first
+			velocity += (-stiffness * (value - endValue) - damping * velocity)
+					* step;
+			value += velocity * step;
+			remaining -= step;
+		}
+
+		if (Math.abs(value - endValue) < restThreshold
+				&& Math.abs(velocity) * MAX_FRAME < restThreshold) {
+			update(endValue);
+			return true;
+		}
+		update(value);
+		return false;
+	}
+}
@@ -16,9 +16,11 @@
 
 package com.example.library;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Parcel;
@@ -29,6 +31,9 @@ import android.view.animation.Interpolator;
 
 import com.example.materialmenu.R;
 import com.nineoldandroids.animation.Animator;
+import com.nineoldandroids.animation.AnimatorListenerAdapter;
+
+import java.util.ArrayList;
 
 import static com.example.library.MaterialMenuDrawable.DEFAULT_COLOR;
 import static com.example.library.MaterialMenuDrawable.DEFAULT_PRESSED_DURATION;
@@ -47,6 +52,44 @@ public class MaterialMenuView extends View implements MaterialMenu {
 
     private IconState currentState = IconState.BURGER;
 
+    private final Rect dirty = new Rect();
+
+    private boolean hardwareLayerEnabled;
+    private boolean hardwareLayerApplied;
+    private int previousLayerType = LAYER_TYPE_NONE;
+    // animators may report a start twice when restarted while running
+    private final ArrayList<Animator> runningAnimators = new ArrayList<Animator>(2);
+
+    private final Animator.AnimatorListener layerListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationStart(Animator animation) {
+            if (!runningAnimators.contains(animation)) {
+                runningAnimators.add(animation);
+                updateLayerType();
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            // canceled animations report their end as well
+            if (runningAnimators.remove(animation)) {
+                updateLayerType();
+            }
+        }
+    };
+
+    private final MaterialMenuDrawable.DirtyRegionCallback dirtyRegionCallback = new MaterialMenuDrawable.DirtyRegionCallback() {
+        @Override
+        public void invalidateDrawable(Drawable who, Rect region) {
+            if (verifyDrawable(who)) {
+                // drawable is drawn translated by padding
+                dirty.set(region);
+                dirty.offset(getPaddingLeft(), getPaddingTop());
+                invalidate(dirty);
+            }
+        }
+    };
+
     public MaterialMenuView(Context context) {
         this(context, null);
     }
@@ -78,6 +121,8 @@ public class MaterialMenuView extends View implements MaterialMenu {
         }
 
         drawable.setCallback(this);
+        drawable.setDirtyRegionCallback(dirtyRegionCallback);
+        drawable.setHostAnimationListener(layerListener);
     }
 
     @Override
@@ -168,6 +213,41 @@ public class MaterialMenuView extends View implements MaterialMenu {
         return drawable;
     }
 
+    /**
+     * Render into a hardware layer while a transformation or pressed circle
+     * animation runs, restoring the previous layer type afterwards. Has no
+     * effect before Honeycomb.
+     */
+    public void setHardwareLayerEnabled(boolean enabled) {
+        if (hardwareLayerEnabled == enabled) {
+            return;
+        }
+        hardwareLayerEnabled = enabled;
+        updateLayerType();
+    }
+
+    public boolean isHardwareLayerEnabled() {
+        return hardwareLayerEnabled;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void updateLayerType() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+        final boolean layer = hardwareLayerEnabled && !runningAnimators.isEmpty();
+        if (layer == hardwareLayerApplied) {
+            return;
+        }
+        hardwareLayerApplied = layer;
+        if (layer) {
+            previousLayerType = getLayerType();
+            setLayerType(LAYER_TYPE_HARDWARE, null);
+        } else {
+            setLayerType(previousLayerType, null);
+        }
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int paddingX = getPaddingLeft() + getPaddingRight();
@@ -182,6 +262,39 @@ public class MaterialMenuView extends View implements MaterialMenu {
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateDrawableVisibility();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (drawable != null) {
+            drawable.setVisible(false, false);
+        }
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateDrawableVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateDrawableVisibility();
+    }
+
+    private void updateDrawableVisibility() {
+        // called from the super constructor before the drawable exists
+        if (drawable != null) {
+            drawable.setVisible(getWindowVisibility() == VISIBLE && isShown(), false);
+        }
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
@@ -0,0 +1,73 @@
+package com.example.materialmenu;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.example.library.MaterialMenuDrawable;
+import com.example.library.MaterialMenuView;
+
+/**
+ * Logs the heap retained per {@link MaterialMenuDrawable} and
+ * {@link MaterialMenuView} by allocating many idle instances and comparing
+ * used memory before and after. Figures are approximate, run it a few times.
+ */
+final class FootprintBenchmark {
+
+	private static final String TAG = "FootprintBenchmark";
+	private static final int DEFAULT_COUNT = 500;
+
+	private FootprintBenchmark() {
+	}
+
+	static void run(Context context) {
+		run(context, DEFAULT_COUNT);
+	}
+
+	static void run(Context context, int count) {
+		// warm up classes and shared geometry so they are not counted
+		new MaterialMenuView(context);
+
+		Log.i(TAG, "MaterialMenuDrawable: " + measureDrawables(context, count)
+				+ " bytes retained per instance");
+		Log.i(TAG, "MaterialMenuView: " + measureViews(context, count)
+				+ " bytes retained per instance");
+	}
+
+	private static long measureDrawables(Context context, int count) {
+		final Object[] retained = new Object[count];
+		final long before = usedMemory();
+		for (int i = 0; i < count; i++) {
+			retained[i] = new MaterialMenuDrawable(context, Color.WHITE,
+					MaterialMenuDrawable.Stroke.THIN);
+		}
+		return retainedPerInstance(before, retained);
+	}
+
+	private static long measureViews(Context context, int count) {
+		final Object[] retained = new Object[count];
+		final long before = usedMemory();
+		for (int i = 0; i < count; i++) {
+			retained[i] = new MaterialMenuView(context);
+		}
+		return retainedPerInstance(before, retained);
+	}
+
+	private static long retainedPerInstance(long before, Object[] retained) {
+		final long after = usedMemory();
+		// instances have to stay reachable until measured
+		if (retained[retained.length - 1] == null) {
+			throw new IllegalStateException();
+		}
+		return (after - before) / retained.length;
+	}
+
+	private static long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			runtime.gc();
+			runtime.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -15,7 +15,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.SeekBar;
 
-public class MainActivity extends Activity implements View.OnClickListener{
+public class MainActivity extends Activity implements View.OnClickListener, View.OnLongClickListener{
 
 	private MaterialMenuView materialMenuView;
     private int              materialButtonState;
@@ -30,6 +30,7 @@ public class MainActivity extends Activity implements View.OnClickListener{
 
 		        materialMenuView = (MaterialMenuView)findViewById(R.id.material_menu_button);
 		        materialMenuView.setOnClickListener(this);
+		        materialMenuView.setOnLongClickListener(this);
 		        materialMenuView.setState(IconState.ARROW);
 		    }
 
@@ -43,6 +44,12 @@ public class MainActivity extends Activity implements View.OnClickListener{
 		    }
 
 
+		    @Override public boolean onLongClick(View v) {
+		        // logs retained heap per drawable and view
+		        FootprintBenchmark.run(this);
+		        return true;
+		    }
+
 		    private void setMainState() {
 		        materialButtonState = generateState(materialButtonState);
 		        materialMenuView.animatePressedState(intToState(materialButtonState));